@@ -5,6 +5,7 @@ import com.example.cashbacktracker.service.CardService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
 /**
@@ -12,6 +13,8 @@ import javafx.stage.Stage;
  * Отвечает за инициализацию и запуск JavaFX приложения.
  */
 public class CashbackTrackerApplication extends Application {
+    private CardService cardService;
+    
     /**
      * Метод инициализации и запуска JavaFX приложения.
      * Загружает главное окно приложения и настраивает необходимые зависимости.
@@ -25,7 +28,7 @@ public class CashbackTrackerApplication extends Application {
         Scene scene = new Scene(fxmlLoader.load());
         
         MainController controller = fxmlLoader.getController();
-        CardService cardService = new CardService();
+        cardService = new CardService();
         controller.setCardService(cardService);
         
         stage.setTitle("Трекер кэшбэка");
@@ -33,6 +36,25 @@ public class CashbackTrackerApplication extends Application {
         stage.show();
     }
     
+    /**
+     * Завершает работу приложения и освобождает ресурсы хранилища данных.
+     * Если отложенные изменения не удалось записать при закрытии хранилища,
+     * показывает ошибку: исключение из stop() JavaFX не сообщает пользователю.
+     */
+    @Override
+    public void stop() {
+        if (cardService != null) {
+            try {
+                cardService.close();
+            } catch (RuntimeException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Ошибка");
+                alert.setContentText("Не удалось сохранить изменения при закрытии хранилища: " + e.getMessage());
+                alert.showAndWait();
+            }
+        }
+    }
+    
     /**
      * Точка входа в приложение.
      * Запускает JavaFX приложение.
@@ -2,10 +2,15 @@ package com.example.cashbacktracker.controller;
 
 import com.example.cashbacktracker.model.Card;
 import com.example.cashbacktracker.model.CardHistory;
+import com.example.cashbacktracker.service.AsyncCardService;
 import com.example.cashbacktracker.service.CardService;
 import com.example.cashbacktracker.dao.CardDaoFactory;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -18,6 +23,10 @@ import javafx.util.StringConverter;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Контроллер главного окна приложения.
@@ -53,9 +62,22 @@ public class MainController {
     ComboBox<String> storageTypeCombo;
     @FXML
     ComboBox<String> searchCategoryCombo;
+    @FXML
+    private ProgressIndicator loadingIndicator;
+    @FXML
+    private Button addButton;
+    @FXML
+    private Button editButton;
+    @FXML
+    private Button deleteButton;
     
     private CardService cardService;
+    private AsyncCardService asyncCardService;
     private final ObservableList<Card> cardList = FXCollections.observableArrayList();
+    private final FilteredList<Card> filteredCards = new FilteredList<>(cardList);
+    private final SortedList<Card> sortedCards = new SortedList<>(filteredCards);
+    private Task<List<Card>> currentLoad;
+    private String currentStorage;
     
     /**
      * Конструктор контроллера.
@@ -66,10 +88,28 @@ public class MainController {
     /**
      * Устанавливает сервис для работы с картами и инициализирует необходимые компоненты.
      *
+     * Долгие операции выполняются асинхронно с возвратом результата в поток JavaFX.
+     *
      * @param cardService сервис для работы с картами
      */
     public void setCardService(CardService cardService) {
+        setCardService(cardService, new AsyncCardService(cardService));
+    }
+    
+    /**
+     * Устанавливает сервис для работы с картами и его асинхронный фасад.
+     * Используется для тестирования с синхронными исполнителями.
+     *
+     * @param cardService сервис для работы с картами
+     * @param asyncCardService асинхронный фасад над сервисом
+     */
+    void setCardService(CardService cardService, AsyncCardService asyncCardService) {
         this.cardService = cardService;
+        this.asyncCardService = asyncCardService;
+        cardService.setErrorListener(error -> Platform.runLater(() -> {
+            showError("Ошибка", "Не удалось сохранить изменения в хранилище: " + error.getMessage());
+            loadCards();
+        }));
         setupStorageTypeCombo();
         loadCards();
         checkExpiringCards();
@@ -107,7 +147,8 @@ public class MainController {
             }
         });
         
-        cardsTable.setItems(cardList);
+        sortedCards.comparatorProperty().bind(cardsTable.comparatorProperty());
+        cardsTable.setItems(sortedCards);
     }
     
     /**
@@ -154,12 +195,13 @@ public class MainController {
      * Настраивает комбобокс для выбора типа хранилища данных.
      */
     private void setupStorageTypeCombo() {
-        storageTypeCombo.getItems().addAll("SQLite", "JSON", "XML");
+        storageTypeCombo.getItems().addAll("SQLite", "JSON", "XML", "Smile", "Mapped");
         storageTypeCombo.setValue("SQLite");
+        currentStorage = "SQLite";
         
         storageTypeCombo.setOnAction(e -> {
             String selectedStorage = storageTypeCombo.getValue();
-            if (selectedStorage != null) {
+            if (selectedStorage != null && !selectedStorage.equals(currentStorage)) {
                 try {
                     Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
                     alert.setTitle("Подтверждение смены хранилища");
@@ -171,32 +213,124 @@ public class MainController {
                         if (response == ButtonType.OK) {
                             try {
                                 CardDaoFactory.StorageType type = CardDaoFactory.StorageType.valueOf(selectedStorage.toUpperCase());
-                                cardService.switchStorage(type);
-                                loadCards();
-                                showInfo("Информация", "Хранилище данных успешно изменено на " + selectedStorage);
+                                setSwitchingStorage(true);
+                                asyncCardService.switchStorage(type)
+                                        .whenComplete((ignored, error) -> setSwitchingStorage(false))
+                                        .thenRun(() -> {
+                                            currentStorage = selectedStorage;
+                                            loadCards();
+                                            showInfo("Информация", "Хранилище данных успешно изменено на " + selectedStorage);
+                                        })
+                                        .exceptionally(error -> {
+                                            showError("Ошибка", "Не удалось переключить хранилище данных: "
+                                                    + errorMessage(error));
+                                            storageTypeCombo.setValue(currentStorage);
+                                            return null;
+                                        });
                             } catch (Exception ex) {
+                                setSwitchingStorage(false);
                                 showError("Ошибка", "Не удалось переключить хранилище данных: " + ex.getMessage());
-                                storageTypeCombo.setValue(storageTypeCombo.getItems().get(0));
+                                storageTypeCombo.setValue(currentStorage);
                             }
                         } else {
-                            storageTypeCombo.setValue(storageTypeCombo.getItems().get(0));
+                            storageTypeCombo.setValue(currentStorage);
                         }
                     });
                 } catch (Exception ex) {
                     showError("Ошибка", "Не удалось переключить хранилище данных: " + ex.getMessage());
-                    storageTypeCombo.setValue(storageTypeCombo.getItems().get(0));
+                    storageTypeCombo.setValue(currentStorage);
                 }
             }
         });
     }
     
     /**
-     * Загружает список карт из хранилища.
+     * Блокирует выбор хранилища и кнопки изменения карт, пока идет переключение хранилища,
+     * чтобы поток JavaFX не ждал окончания переключения на изменении карты.
+     *
+     * @param switching true пока идет переключение
+     */
+    private void setSwitchingStorage(boolean switching) {
+        storageTypeCombo.setDisable(switching);
+        for (Button button : new Button[] {addButton, editButton, deleteButton}) {
+            if (button != null) {
+                button.setDisable(switching);
+            }
+        }
+    }
+    
+    /**
+     * Выполняет изменение карт и перезагружает таблицу.
+     * Ошибка хранилища показывается пользователю вместе с описанием действия.
+     *
+     * @param change изменение карт
+     * @param failureMessage описание неудавшегося действия
+     */
+    private void applyChange(Runnable change, String failureMessage) {
+        try {
+            change.run();
+        } catch (RuntimeException e) {
+            showError("Ошибка", failureMessage + ": " + e.getMessage());
+        }
+        loadCards();
+    }
+    
+    /**
+     * Загружает список карт из хранилища в фоновой задаче.
+     * Таблица остается доступной, пока идет загрузка.
      */
     protected void loadCards() {
-        cardList.clear();
-        cardList.addAll(cardService.getAllCards());
-        updateFilterOptions();
+        startLoad(new Task<>() {
+            @Override
+            protected List<Card> call() {
+                return cardService.getAllCards();
+            }
+        }, cards -> {
+            cardList.setAll(cards);
+            updateFilterOptions();
+        });
+    }
+    
+    /**
+     * Запускает фоновую загрузку карт, отменяя предыдущую, если она еще не завершилась.
+     * Результат отмененной или устаревшей загрузки не применяется к таблице.
+     * Поток загрузки не прерывается, чтобы не закрыть файлы хранилища посреди записи.
+     *
+     * @param task задача загрузки
+     * @param onLoaded обработчик результата в потоке JavaFX
+     */
+    private void startLoad(Task<List<Card>> task, Consumer<List<Card>> onLoaded) {
+        if (currentLoad != null) {
+            currentLoad.cancel(false);
+        }
+        currentLoad = task;
+        task.setOnSucceeded(event -> {
+            if (currentLoad == task) {
+                currentLoad = null;
+                setLoading(false);
+                onLoaded.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (currentLoad == task) {
+                currentLoad = null;
+                setLoading(false);
+                showError("Ошибка", "Не удалось загрузить карты: " + task.getException().getMessage());
+            }
+        });
+        setLoading(true);
+        asyncCardService.execute(task);
+    }
+    
+    /**
+     * Показывает или скрывает индикатор загрузки.
+     *
+     * @param loading true пока идет загрузка
+     */
+    private void setLoading(boolean loading) {
+        if (loadingIndicator != null) {
+            loadingIndicator.setVisible(loading);
+        }
     }
     
     /**
@@ -237,34 +371,49 @@ public class MainController {
     }
     
     /**
-     * Применяет выбранные фильтры к списку карт.
+     * Применяет выбранные фильтры к загруженному списку карт.
+     * Хранилище не опрашивается: таблица показывает отфильтрованное представление
+     * основного списка, которое пересчитывается при смене условия.
      */
     protected void applyFilters() {
-        String selectedBank = bankFilter.getValue();
-        String selectedCategory = categoryFilter.getValue();
-        Card.CardStatus selectedStatus = statusFilter.getValue();
-        
-        List<Card> filteredCards = cardService.getAllCards();
+        filteredCards.setPredicate(filterPredicate(bankFilter.getValue(), categoryFilter.getValue(), statusFilter.getValue()));
+    }
+    
+    /**
+     * Составляет условие отбора карт из выбранных фильтров.
+     *
+     * @param bank фильтр по банку
+     * @param category фильтр по категории
+     * @param status фильтр по статусу
+     * @return условие отбора или null, если фильтры не выбраны
+     */
+    private static Predicate<Card> filterPredicate(String bank, String category, Card.CardStatus status) {
+        Predicate<Card> predicate = null;
 
-        if (selectedBank != null && !selectedBank.equals(ALL_BANKS)) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getBankName().equals(selectedBank))
-                    .toList();
+        if (bank != null && !bank.equals(ALL_BANKS)) {
+            predicate = and(predicate, card -> bank.equals(card.getBankName()));
         }
 
-        if (selectedCategory != null && !selectedCategory.equals(ALL_CATEGORIES)) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getCategory().equals(selectedCategory))
-                    .toList();
+        if (category != null && !category.equals(ALL_CATEGORIES)) {
+            predicate = and(predicate, card -> category.equals(card.getCategory()));
         }
 
-        if (selectedStatus != null) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getStatus() == selectedStatus)
-                    .toList();
+        if (status != null) {
+            predicate = and(predicate, card -> card.getStatus() == status);
         }
         
-        cardList.setAll(filteredCards);
+        return predicate;
+    }
+    
+    /**
+     * Объединяет условия отбора.
+     *
+     * @param first первое условие или null
+     * @param second второе условие
+     * @return условие, выполняющееся при выполнении обоих
+     */
+    private static Predicate<Card> and(Predicate<Card> first, Predicate<Card> second) {
+        return first == null ? second : first.and(second);
     }
     
     /**
@@ -287,8 +436,7 @@ public class MainController {
                 if (response == ButtonType.OK) {
                     Card newCard = controller.getCard();
                     if (newCard != null) {
-                        cardService.addCard(newCard);
-                        loadCards();
+                        applyChange(() -> cardService.addCard(newCard), "Не удалось добавить карту");
                     }
                 }
             });
@@ -325,8 +473,7 @@ public class MainController {
                     Card updatedCard = controller.getCard();
                     if (updatedCard != null) {
                         updatedCard.setId(selectedCard.getId());
-                        cardService.updateCard(updatedCard);
-                        loadCards();
+                        applyChange(() -> cardService.updateCard(updatedCard), "Не удалось изменить карту");
                     }
                 }
             });
@@ -353,8 +500,7 @@ public class MainController {
 
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                cardService.deleteCard(selectedCard.getId());
-                loadCards();
+                applyChange(() -> cardService.deleteCard(selectedCard.getId()), "Не удалось удалить карту");
             }
         });
     }
@@ -370,12 +516,26 @@ public class MainController {
             return;
         }
 
+        asyncCardService.getCardHistory(selectedCard.getId())
+                .thenAccept(history -> showHistoryWindow(selectedCard, history))
+                .exceptionally(error -> {
+                    showError("Ошибка", "Не удалось загрузить историю изменений: " + errorMessage(error));
+                    return null;
+                });
+    }
+    
+    /**
+     * Открывает окно истории изменений карты.
+     *
+     * @param card карта, история которой показывается
+     * @param history записи истории изменений
+     */
+    private void showHistoryWindow(Card card, List<CardHistory> history) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/card-history-view.fxml"));
             VBox root = loader.load();
             CardHistoryController controller = loader.getController();
 
-            List<CardHistory> history = cardService.getCardHistory(selectedCard.getId());
             controller.setHistory(history);
             controller.setTitle("История изменений");
 
@@ -384,7 +544,7 @@ public class MainController {
             stage.initModality(Modality.APPLICATION_MODAL);
             stage.setScene(new Scene(root));
             stage.setResizable(true);
-            stage.setTitle("История изменений карты " + selectedCard.getCardName());
+            stage.setTitle("История изменений карты " + card.getCardName());
             stage.show();
         } catch (Exception e) {
             showError("Ошибка", "Не удалось открыть окно истории изменений");
@@ -411,24 +571,31 @@ public class MainController {
     
     /**
      * Проверяет наличие карт с истекающей категорией кэшбэка.
+     * Все истекшие карты переводятся в статус «Истёк» одной операцией в фоне,
+     * а уведомление показывается в потоке JavaFX.
+     *
+     * @return CompletableFuture, завершающийся после показа уведомления
      */
-    public void checkExpiringCards() {
-        List<Card> expiringCards = cardService.getExpiringCards(LocalDate.now());
-        if (!expiringCards.isEmpty()) {
-            StringBuilder message = new StringBuilder("Следующие карты требуют обновления категории кэшбэка:\n\n");
-            for (Card card : expiringCards) {
-                message.append(String.format("%s %s: %s (%.1f%%)\n",
-                        card.getBankName(),
-                        card.getCardName(),
-                        card.getCategory(),
-                        card.getCashback()));
-                
-                card.setStatus(Card.CardStatus.EXPIRED);
-                cardService.updateCard(card);
-            }
-            showInfo("Внимание", message.toString());
-            loadCards();
-        }
+    public CompletableFuture<Void> checkExpiringCards() {
+        return asyncCardService.expireCards(LocalDate.now())
+                .thenAccept(expiringCards -> {
+                    if (!expiringCards.isEmpty()) {
+                        StringBuilder message = new StringBuilder("Следующие карты требуют обновления категории кэшбэка:\n\n");
+                        for (Card card : expiringCards) {
+                            message.append(String.format("%s %s: %s (%.1f%%)\n",
+                                    card.getBankName(),
+                                    card.getCardName(),
+                                    card.getCategory(),
+                                    card.getCashback()));
+                        }
+                        showInfo("Внимание", message.toString());
+                        loadCards();
+                    }
+                })
+                .exceptionally(error -> {
+                    showError("Ошибка", "Не удалось проверить истекающие категории: " + errorMessage(error));
+                    return null;
+                });
     }
     
     /**
@@ -442,7 +609,21 @@ public class MainController {
             return;
         }
         
-        Optional<Card> bestCard = cardService.findBestCardForCategory(selectedCategory);
+        asyncCardService.findBestCardForCategory(selectedCategory)
+                .thenAccept(bestCard -> showBestCard(selectedCategory, bestCard))
+                .exceptionally(error -> {
+                    showError("Ошибка", "Не удалось найти лучшую карту: " + errorMessage(error));
+                    return null;
+                });
+    }
+    
+    /**
+     * Показывает найденную лучшую карту для категории.
+     *
+     * @param selectedCategory категория кэшбэка
+     * @param bestCard Optional с лучшей картой
+     */
+    private void showBestCard(String selectedCategory, Optional<Card> bestCard) {
         if (bestCard.isPresent()) {
             Card card = bestCard.get();
             String message = String.format("""
@@ -465,6 +646,17 @@ public class MainController {
         }
     }
     
+    /**
+     * Возвращает текст ошибки асинхронной операции без обертки {@link CompletionException}.
+     *
+     * @param error ошибка операции
+     * @return текст ошибки
+     */
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+    
     /**
      * Показывает диалог с сообщением об ошибке.
      *
@@ -486,7 +678,7 @@ public class MainController {
     }
     
     /**
-     * Возвращает список карт для отображения в таблице.
+     * Возвращает основной список загруженных карт, на котором построена таблица.
      *
      * @return список карт
      */
@@ -517,7 +709,7 @@ public class MainController {
     }
     
     /**
-     * Применяет фильтры к списку карт.
+     * Применяет фильтры к списку карт, не меняя фильтр таблицы.
      *
      * @param bank фильтр по банку
      * @param category фильтр по категории
@@ -525,27 +717,9 @@ public class MainController {
      * @return отфильтрованный список карт
      */
     public List<Card> applyFilters(String bank, String category, Card.CardStatus status) {
-        List<Card> filteredCards = cardService.getAllCards();
-        
-        if (bank != null && !bank.equals(ALL_BANKS)) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getBankName().equals(bank))
-                    .toList();
-        }
-        
-        if (category != null && !category.equals(ALL_CATEGORIES)) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getCategory().equals(category))
-                    .toList();
-        }
-        
-        if (status != null) {
-            filteredCards = filteredCards.stream()
-                    .filter(card -> card.getStatus() == status)
-                    .toList();
-        }
-        
-        return filteredCards;
+        List<Card> cards = cardService.getAllCards();
+        Predicate<Card> predicate = filterPredicate(bank, category, status);
+        return predicate == null ? List.copyOf(cards) : cards.stream().filter(predicate).toList();
     }
     
     /**
@@ -0,0 +1,87 @@
+package com.example.cashbacktracker.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Атомарная перезапись файлов хранилища.
+ * Данные пишутся во временный файл в том же каталоге, при необходимости
+ * сбрасываются на диск согласно {@link FsyncPolicy} и заменяют целевой файл
+ * через {@link Files#move} с {@link StandardCopyOption#ATOMIC_MOVE}.
+ * Сбой во время записи оставляет целевой файл нетронутым.
+ */
+final class AtomicFileWriter {
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Запись содержимого файла в поток.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Атомарно заменяет содержимое файла.
+     *
+     * @param target целевой файл
+     * @param policy политика сброса на диск
+     * @param writer запись содержимого; поток закрывать не требуется
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    static void write(Path target, FsyncPolicy policy, ContentWriter writer) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                writer.write(new FilterOutputStream(buffered) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                });
+                buffered.flush();
+                if (policy != FsyncPolicy.NONE) {
+                    channel.force(true);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (policy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            syncDirectory(dir);
+        }
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога, чтобы сохранилось переименование файла.
+     * На платформах, где каталог нельзя открыть для fsync, ничего не делает.
+     *
+     * @param dir каталог
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // например, Windows не позволяет открыть каталог как файл
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.cashbacktracker.dao;
+
+/**
+ * Статистика кэша {@link CachingCardDao}.
+ *
+ * @param hits количество запросов, обслуженных из кэша
+ * @param misses количество запросов, переданных хранилищу
+ * @param evictions количество записей, вытесненных из кэша по размеру или сроку жизни
+ * @param size текущее количество записей в кэше
+ */
+public record CacheStats(long hits, long misses, long evictions, int size) {
+
+    /**
+     * Возвращает долю запросов, обслуженных из кэша.
+     *
+     * @return доля попаданий от 0 до 1; 0 если запросов еще не было
+     */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
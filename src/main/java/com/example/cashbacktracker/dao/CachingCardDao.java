@@ -0,0 +1,384 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Кэширующая обертка над любым CardDao.
+ * Результаты чтений кладутся в кэш с ограничением по размеру и сроку жизни
+ * ({@link ExpiringLruCache}); изменения передаются хранилищу сразу и удаляют из кэша
+ * все результаты, которые могли измениться. В кэш кладутся копии карт и записей истории,
+ * и каждому вызывающему возвращаются новые копии, поэтому изменение полученной карты
+ * не меняет закэшированные данные и объекты хранилища, а вызывающие не делят объекты
+ * между собой.
+ */
+public class CachingCardDao implements CardDao {
+    private final CardDao delegate;
+    private final ExpiringLruCache<CacheKey, Object> cache;
+
+    /**
+     * Вид закэшированного запроса.
+     */
+    private enum Query {
+        ALL_CARDS,
+        CARD_BY_ID,
+        BY_CATEGORY,
+        BEST_FOR_CATEGORY,
+        EXPIRING,
+        HISTORY
+    }
+
+    /**
+     * Ключ кэша: вид запроса и его аргумент.
+     *
+     * @param query вид запроса
+     * @param argument аргумент запроса или null
+     */
+    private record CacheKey(Query query, Object argument) {
+
+        /**
+         * Проверяет, может ли результат запроса измениться при изменении любой карты.
+         * Карта по идентификатору и история карты удаляются из кэша по ключу.
+         *
+         * @return true для запросов по списку карт
+         */
+        boolean dependsOnCards() {
+            return query != Query.HISTORY && query != Query.CARD_BY_ID;
+        }
+    }
+
+    /**
+     * Создает кэширующую обертку.
+     *
+     * @param delegate хранилище, к которому передаются запросы
+     * @param maxEntries максимальное количество закэшированных результатов
+     * @param ttl срок жизни закэшированного результата
+     */
+    public CachingCardDao(CardDao delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, System::nanoTime);
+    }
+
+    /**
+     * Создает кэширующую обертку с заданным источником времени.
+     * Используется для тестирования.
+     *
+     * @param delegate хранилище, к которому передаются запросы
+     * @param maxEntries максимальное количество закэшированных результатов
+     * @param ttl срок жизни закэшированного результата
+     * @param clock источник текущего времени в наносекундах
+     */
+    CachingCardDao(CardDao delegate, int maxEntries, Duration ttl, LongSupplier clock) {
+        this.delegate = delegate;
+        this.cache = new ExpiringLruCache<>(maxEntries, ttl.toNanos(), clock);
+    }
+
+    /**
+     * Возвращает статистику кэша.
+     *
+     * @return количество попаданий, промахов, вытеснений и текущий размер кэша
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Удаляет из кэша все результаты.
+     * Вызывается, когда хранилище под кэшем изменилось помимо методов этой обертки.
+     */
+    public void invalidateAll() {
+        cache.invalidateIf(key -> true);
+    }
+
+    /**
+     * Возвращает результат запроса из кэша или загружает его из хранилища.
+     *
+     * @param key ключ запроса
+     * @param loader загрузка результата из хранилища
+     * @param <T> тип результата
+     * @return результат запроса
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(CacheKey key, Supplier<T> loader) {
+        Object value = cache.get(key);
+        if (value != null) {
+            return (T) value;
+        }
+        long generation = cache.generation();
+        T loaded = loader.get();
+        cache.put(key, loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Копирует элементы списка.
+     *
+     * @param values исходный список
+     * @param copier копирование элемента
+     * @param <T> тип элементов
+     * @return изменяемый список копий
+     */
+    private static <T> List<T> copyAll(List<T> values, UnaryOperator<T> copier) {
+        List<T> copies = new ArrayList<>(values.size());
+        for (T value : values) {
+            copies.add(copier.apply(value));
+        }
+        return copies;
+    }
+
+    /**
+     * Возвращает копии закэшированных карт, загружая и копируя их при промахе.
+     *
+     * @param key ключ запроса
+     * @param loader загрузка списка карт из хранилища
+     * @return изменяемый список копий карт
+     */
+    private List<Card> cachedCards(CacheKey key, Supplier<List<Card>> loader) {
+        List<Card> cards = cached(key, () -> List.copyOf(copyAll(loader.get(), Card::copy)));
+        return copyAll(cards, Card::copy);
+    }
+
+    /**
+     * Возвращает копию закэшированной карты, загружая и копируя ее при промахе.
+     *
+     * @param key ключ запроса
+     * @param loader загрузка карты из хранилища
+     * @return Optional с копией карты
+     */
+    private Optional<Card> cachedCard(CacheKey key, Supplier<Optional<Card>> loader) {
+        Optional<Card> card = cached(key, () -> loader.get().map(Card::copy));
+        return card.map(Card::copy);
+    }
+
+    /**
+     * Удаляет из кэша результаты, зависящие от списка карт, а также карту и историю
+     * для указанных идентификаторов.
+     *
+     * @param cards измененные карты
+     */
+    private void invalidateCards(List<Card> cards) {
+        cache.invalidateIf(CacheKey::dependsOnCards);
+        for (Card card : cards) {
+            invalidateCard(card.getId());
+        }
+    }
+
+    /**
+     * Удаляет из кэша карту и ее историю.
+     *
+     * @param id идентификатор карты
+     */
+    private void invalidateCard(Long id) {
+        cache.invalidate(new CacheKey(Query.CARD_BY_ID, id));
+        cache.invalidate(new CacheKey(Query.HISTORY, id));
+    }
+
+    /**
+     * Сохраняет новую карту и удаляет из кэша зависящие от нее результаты.
+     *
+     * @param card карта для сохранения
+     */
+    @Override
+    public void saveCard(Card card) {
+        try {
+            delegate.saveCard(card);
+        } finally {
+            invalidateCards(List.of(card));
+        }
+    }
+
+    /**
+     * Обновляет карту и удаляет из кэша зависящие от нее результаты.
+     *
+     * @param card карта с обновленными данными
+     */
+    @Override
+    public void updateCard(Card card) {
+        try {
+            delegate.updateCard(card);
+        } finally {
+            invalidateCards(List.of(card));
+        }
+    }
+
+    /**
+     * Сохраняет несколько новых карт и удаляет из кэша зависящие от них результаты.
+     *
+     * @param cards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> cards) {
+        try {
+            delegate.saveCards(cards);
+        } finally {
+            invalidateCards(cards);
+        }
+    }
+
+    /**
+     * Обновляет несколько карт и удаляет из кэша зависящие от них результаты.
+     *
+     * @param cards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> cards) {
+        try {
+            delegate.updateCards(cards);
+        } finally {
+            invalidateCards(cards);
+        }
+    }
+
+    /**
+     * Удаляет карту и удаляет из кэша зависящие от нее результаты.
+     *
+     * @param id идентификатор карты для удаления
+     */
+    @Override
+    public void deleteCard(Long id) {
+        try {
+            delegate.deleteCard(id);
+        } finally {
+            cache.invalidateIf(CacheKey::dependsOnCards);
+            invalidateCard(id);
+        }
+    }
+
+    /**
+     * Получает список всех карт из кэша или хранилища.
+     *
+     * @return список всех карт
+     */
+    @Override
+    public List<Card> getAllCards() {
+        return cachedCards(new CacheKey(Query.ALL_CARDS, null), delegate::getAllCards);
+    }
+
+    /**
+     * Находит карту по идентификатору в кэше или хранилище.
+     *
+     * @param id идентификатор карты
+     * @return Optional, содержащий карту, если она найдена
+     */
+    @Override
+    public Optional<Card> getCardById(Long id) {
+        return cachedCard(new CacheKey(Query.CARD_BY_ID, id), () -> delegate.getCardById(id));
+    }
+
+    /**
+     * Находит карты с указанной категорией в кэше или хранилище.
+     *
+     * @param category категория кэшбэка
+     * @return список карт с указанной категорией
+     */
+    @Override
+    public List<Card> findByCategory(String category) {
+        return cachedCards(new CacheKey(Query.BY_CATEGORY, category), () -> delegate.findByCategory(category));
+    }
+
+    /**
+     * Находит активную карту с максимальным кэшбэком в категории в кэше или хранилище.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        return cachedCard(new CacheKey(Query.BEST_FOR_CATEGORY, category),
+                () -> delegate.findBestCardForCategory(category));
+    }
+
+    /**
+     * Находит карты с истекающей категорией в кэше или хранилище.
+     *
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     */
+    @Override
+    public List<Card> findByExpiringCategory(LocalDate date) {
+        return cachedCards(new CacheKey(Query.EXPIRING, date), () -> delegate.findByExpiringCategory(date));
+    }
+
+    /**
+     * Переводит истекающие карты в статус EXPIRED и удаляет из кэша все результаты,
+     * кроме истории, которую смена статуса не затрагивает.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        try {
+            return delegate.expireCards(date);
+        } finally {
+            cache.invalidateIf(key -> key.query() != Query.HISTORY);
+        }
+    }
+
+    /**
+     * Сохраняет запись истории и удаляет из кэша историю карты.
+     *
+     * @param history запись истории для сохранения
+     */
+    @Override
+    public void saveHistory(CardHistory history) {
+        try {
+            delegate.saveHistory(history);
+        } finally {
+            cache.invalidate(new CacheKey(Query.HISTORY, history.getCardId()));
+        }
+    }
+
+    /**
+     * Сохраняет несколько записей истории и удаляет из кэша историю затронутых карт.
+     *
+     * @param records записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> records) {
+        try {
+            delegate.saveHistoryBatch(records);
+        } finally {
+            for (CardHistory record : records) {
+                cache.invalidate(new CacheKey(Query.HISTORY, record.getCardId()));
+            }
+        }
+    }
+
+    /**
+     * Получает историю изменений карты из кэша или хранилища.
+     *
+     * @param cardId идентификатор карты
+     * @return список записей истории изменений
+     */
+    @Override
+    public List<CardHistory> findHistoryByCardId(Long cardId) {
+        List<CardHistory> history = cached(new CacheKey(Query.HISTORY, cardId),
+                () -> List.copyOf(copyAll(delegate.findHistoryByCardId(cardId), CardHistory::copy)));
+        return copyAll(history, CardHistory::copy);
+    }
+
+    /**
+     * Записывает в хранилище изменения, ожидающие фиксации.
+     */
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    /**
+     * Закрывает хранилище.
+     */
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -9,8 +9,9 @@ import java.util.Optional;
 /**
  * Интерфейс для работы с хранилищем данных карт и их истории.
  * Определяет основные операции для работы с картами и историей их изменений.
+ * Хранилище удерживает ресурсы (соединения, файлы) до вызова {@link #close()}.
  */
-public interface CardDao {
+public interface CardDao extends AutoCloseable {
 
     /**
      * Сохраняет новую карту в хранилище.
@@ -26,6 +27,25 @@ public interface CardDao {
      */
     void updateCard(Card card);
 
+    /**
+     * Сохраняет несколько новых карт за одну операцию записи.
+     * Для каждой карты создается запись в истории, как и при {@link #saveCard(Card)}.
+     * Пакет применяется целиком: если запись не удалась, ни одна карта не остается
+     * сохраненной, а назначенные картам идентификаторы возвращаются к прежним значениям.
+     *
+     * @param cards карты для сохранения
+     */
+    void saveCards(List<Card> cards);
+
+    /**
+     * Обновляет несколько существующих карт за одну операцию записи.
+     * Записи истории создаются по тем же правилам, что и при {@link #updateCard(Card)}.
+     * Пакет применяется целиком: если запись не удалась, ни одно обновление не остается примененным.
+     *
+     * @param cards карты с обновленными данными
+     */
+    void updateCards(List<Card> cards);
+
     /**
      * Удаляет карту из хранилища по её идентификатору.
      *
@@ -55,6 +75,15 @@ public interface CardDao {
      */
     void saveHistory(CardHistory history);
 
+    /**
+     * Сохраняет несколько записей истории за одну операцию записи.
+     * Пакет применяется целиком: если запись не удалась, ни одна запись не остается
+     * сохраненной, а назначенные идентификаторы сбрасываются.
+     *
+     * @param history записи истории для сохранения
+     */
+    void saveHistoryBatch(List<CardHistory> history);
+
     /**
      * Получает историю изменений для конкретной карты.
      *
@@ -71,6 +100,14 @@ public interface CardDao {
      */
     List<Card> findByCategory(String category);
 
+    /**
+     * Находит активную карту с максимальным кэшбэком в указанной категории.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если такая найдена
+     */
+    Optional<Card> findBestCardForCategory(String category);
+
     /**
      * Находит все карты, у которых категория кэшбэка истекает на указанную дату.
      *
@@ -78,4 +115,25 @@ public interface CardDao {
      * @return список карт с истекающей категорией
      */
     List<Card> findByExpiringCategory(LocalDate date);
+
+    /**
+     * Переводит в статус {@link Card.CardStatus#EXPIRED} все активные карты,
+     * которые вернул бы {@link #findByExpiringCategory(LocalDate)}, за одну операцию записи.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    List<Card> expireCards(LocalDate date);
+
+    /**
+     * Записывает на диск изменения, которые хранилище отложило для групповой записи.
+     * Для хранилищ, фиксирующих каждое изменение сразу, ничего не делает.
+     */
+    void flush();
+
+    /**
+     * Освобождает ресурсы хранилища. После закрытия хранилище использовать нельзя.
+     */
+    @Override
+    void close();
 }
\ No newline at end of file
@@ -1,5 +1,11 @@
 package com.example.cashbacktracker.dao;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Consumer;
+
 /**
  * Фабричный класс для создания экземпляров CardDao.
  * Предоставляет методы для создания DAO объектов различных типов хранилищ.
@@ -9,10 +15,23 @@ public class CardDaoFactory {
     private static final String JSON_DIR = DATA_DIR + "/JSON";
     private static final String XML_DIR = DATA_DIR + "/XML";
     private static final String SQLITE_DIR = DATA_DIR + "/SQLite";
+    private static final String SMILE_DIR = DATA_DIR + "/Smile";
+    private static final String MAPPED_DIR = DATA_DIR + "/Mapped";
     
     private static final String JSON_FILE_PATH = JSON_DIR + "/cards.json";
     private static final String XML_FILE_PATH = XML_DIR + "/cards.xml";
     private static final String SQLITE_FILE_PATH = SQLITE_DIR + "/cashback.db";
+    private static final String SMILE_FILE_PATH = SMILE_DIR + "/cards.sml";
+    private static final String MAPPED_FILE_PATH = MAPPED_DIR + "/cards.dat";
+    
+    private static final Duration XML_FLUSH_INTERVAL = Duration.ofMillis(500);
+    private static final int XML_FLUSH_BATCH_SIZE = 100;
+    private static final Duration SMILE_FLUSH_INTERVAL = Duration.ofMillis(500);
+    private static final int SMILE_FLUSH_BATCH_SIZE = 100;
+    private static final int CACHE_MAX_ENTRIES = 1_000;
+    private static final Duration CACHE_TTL = Duration.ofSeconds(30);
+    private static final int WRITE_QUEUE_CAPACITY = 1_000;
+    private static final int WRITE_BATCH_SIZE = 100;
     
     /**
      * Перечисление доступных типов хранилищ данных.
@@ -20,20 +39,137 @@ public class CardDaoFactory {
     public enum StorageType {
         SQLITE,
         JSON,
-        XML
+        XML,
+        SMILE,
+        MAPPED
     }
     
     /**
      * Создает экземпляр CardDao указанного типа.
+     * Хранилище SQLite открывается с профилем {@link SqlitePragmaProfile#DURABLE}.
      *
      * @param type тип хранилища данных
      * @return экземпляр CardDao соответствующего типа
      */
     public static CardDao createDao(StorageType type) {
+        return createDao(type, SqlitePragmaProfile.DURABLE);
+    }
+    
+    /**
+     * Создает экземпляр CardDao указанного типа.
+     *
+     * @param type тип хранилища данных
+     * @param sqliteProfile параметры PRAGMA для хранилища SQLite; для остальных типов не используется
+     * @return экземпляр CardDao соответствующего типа
+     */
+    public static CardDao createDao(StorageType type, SqlitePragmaProfile sqliteProfile) {
+        return createDao(type, sqliteProfile, error -> { });
+    }
+    
+    /**
+     * Создает экземпляр CardDao указанного типа и подключает получателя ошибок
+     * фоновой записи файловых хранилищ (групповой фиксации и уплотнения журнала).
+     *
+     * @param type тип хранилища данных
+     * @param sqliteProfile параметры PRAGMA для хранилища SQLite; для остальных типов не используется
+     * @param onBackgroundFailure получатель ошибок фоновой записи; вызывается в фоновом потоке
+     * @return экземпляр CardDao соответствующего типа
+     */
+    private static CardDao createDao(StorageType type, SqlitePragmaProfile sqliteProfile,
+                                     Consumer<RuntimeException> onBackgroundFailure) {
         return switch (type) {
-            case SQLITE -> new SqliteCardDao(SQLITE_FILE_PATH);
-            case JSON -> new JsonCardDao(JSON_FILE_PATH);
-            case XML -> new XmlCardDao(XML_FILE_PATH);
+            case SQLITE -> new SqliteCardDao(SQLITE_FILE_PATH, sqliteProfile);
+            case JSON -> {
+                JsonCardDao dao = new JsonCardDao(JSON_FILE_PATH, true);
+                dao.setBackgroundFailureListener(onBackgroundFailure);
+                yield dao;
+            }
+            case XML -> {
+                XmlCardDao dao = new XmlCardDao(XML_FILE_PATH, XML_FLUSH_INTERVAL, XML_FLUSH_BATCH_SIZE,
+                        FsyncPolicy.FILE, true);
+                dao.setBackgroundFailureListener(onBackgroundFailure);
+                yield dao;
+            }
+            case SMILE -> {
+                ensureDirectory(SMILE_DIR);
+                SmileCardDao dao = new SmileCardDao(SMILE_FILE_PATH, SMILE_FLUSH_INTERVAL, SMILE_FLUSH_BATCH_SIZE,
+                        FsyncPolicy.FILE);
+                dao.setBackgroundFailureListener(onBackgroundFailure);
+                yield dao;
+            }
+            case MAPPED -> {
+                ensureDirectory(MAPPED_DIR);
+                yield new MappedCardDao(MAPPED_FILE_PATH, FsyncPolicy.FILE);
+            }
         };
     }
+    
+    /**
+     * Создает экземпляр CardDao указанного типа, обернутый в кэш чтений ({@link CachingCardDao}).
+     * Хранилище SQLite открывается с профилем {@link SqlitePragmaProfile#DURABLE}.
+     *
+     * @param type тип хранилища данных
+     * @return кэширующий CardDao над хранилищем соответствующего типа
+     */
+    public static CachingCardDao createCachingDao(StorageType type) {
+        return new CachingCardDao(createDao(type), CACHE_MAX_ENTRIES, CACHE_TTL);
+    }
+    
+    /**
+     * Создает экземпляр CardDao указанного типа с отложенной записью ({@link WriteBehindCardDao})
+     * и кэшем чтений ({@link CachingCardDao}) поверх нее. Изменения не блокируют вызывающий поток,
+     * пока очередь записи не заполнена.
+     * Хранилище SQLite открывается с профилем {@link SqlitePragmaProfile#DURABLE}.
+     *
+     * @param type тип хранилища данных
+     * @return кэширующий CardDao с отложенной записью в хранилище соответствующего типа
+     */
+    public static CachingCardDao createWriteBehindDao(StorageType type) {
+        return createWriteBehindDao(type, error -> { });
+    }
+    
+    /**
+     * Создает экземпляр CardDao указанного типа с отложенной записью и кэшем чтений поверх нее.
+     * Кэш сбрасывается после каждой записанной или отброшенной пачки изменений.
+     * Получателю ошибок сообщается об отброшенных изменениях, а также об ошибках
+     * фоновой записи самого хранилища: групповая фиксация XML и Smile и уплотнение
+     * журнала JSON пишут файлы уже после того, как пачка считается записанной.
+     * Данные в памяти хранилища при такой ошибке не меняются, поэтому кэш не сбрасывается.
+     *
+     * @param type тип хранилища данных
+     * @param onWriteFailure получатель ошибок фоновой записи; вызывается в фоновом потоке
+     * @return кэширующий CardDao с отложенной записью в хранилище соответствующего типа
+     */
+    public static CachingCardDao createWriteBehindDao(StorageType type, Consumer<RuntimeException> onWriteFailure) {
+        WriteBehindCardDao writeBehind = new WriteBehindCardDao(
+                createDao(type, SqlitePragmaProfile.DURABLE, onWriteFailure),
+                WRITE_QUEUE_CAPACITY, WRITE_BATCH_SIZE, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        CachingCardDao caching = new CachingCardDao(writeBehind, CACHE_MAX_ENTRIES, CACHE_TTL);
+        writeBehind.addListener(new WriteBehindCardDao.WriteListener() {
+            @Override
+            public void batchWritten() {
+                caching.invalidateAll();
+            }
+
+            @Override
+            public void writeFailed(RuntimeException error) {
+                caching.invalidateAll();
+                onWriteFailure.accept(error);
+            }
+        });
+        return caching;
+    }
+    
+    /**
+     * Создает каталог хранилища, если он еще не существует.
+     *
+     * @param dir путь к каталогу
+     */
+    private static void ensureDirectory(String dir) {
+        try {
+            Files.createDirectories(Path.of(dir));
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при создании каталога хранилища " + dir, e);
+        }
+    }
 }
\ No newline at end of file
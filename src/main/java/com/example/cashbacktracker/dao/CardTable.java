@@ -0,0 +1,218 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Таблица карт файлового хранилища в памяти.
+ * Хранит карты в порядке добавления и индекс по идентификатору
+ * ({@link LongHashMap}), поэтому поиск, обновление и удаление карты
+ * выполняются за O(1), а обновление не меняет порядок карт.
+ * Удаленные карты оставляют пустые ячейки, которые уплотняются,
+ * когда их становится больше, чем живых карт.
+ * Вместе с таблицей поддерживаются индексы по категории ({@link CategoryIndex})
+ * и по дате изменения категории активных карт ({@link ExpiryIndex}).
+ */
+final class CardTable {
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 16;
+
+    private final LongHashMap<Slot> byId = new LongHashMap<>();
+    private final List<Slot> slots = new ArrayList<>();
+    private final CategoryIndex categories = new CategoryIndex();
+    private final ExpiryIndex expiry = new ExpiryIndex();
+    private int tombstones;
+
+    /**
+     * Ячейка таблицы: карта и ее позиция в порядке добавления.
+     */
+    private static final class Slot {
+        private Card card;
+        private int position;
+
+        private Slot(Card card, int position) {
+            this.card = card;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Добавляет карту в конец или заменяет карту с тем же идентификатором на ее месте.
+     *
+     * @param card карта с назначенным идентификатором
+     * @return предыдущая карта с тем же идентификатором или null
+     */
+    Card put(Card card) {
+        categories.put(card);
+        expiry.put(card);
+        Slot slot = byId.get(card.getId());
+        if (slot != null) {
+            Card previous = slot.card;
+            slot.card = card;
+            return previous;
+        }
+        slot = new Slot(card, slots.size());
+        slots.add(slot);
+        byId.put(card.getId(), slot);
+        return null;
+    }
+
+    /**
+     * Находит карту по идентификатору.
+     *
+     * @param id идентификатор карты
+     * @return Optional, содержащий карту, если она найдена
+     */
+    Optional<Card> get(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Slot slot = byId.get(id);
+        return slot == null ? Optional.empty() : Optional.of(slot.card);
+    }
+
+    /**
+     * Удаляет карту по идентификатору.
+     *
+     * @param id идентификатор карты
+     * @return удаленная карта или null, если карта не найдена
+     */
+    Card remove(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Slot slot = byId.remove(id);
+        if (slot == null) {
+            return null;
+        }
+        clear(slot);
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > byId.size()) {
+            compact();
+        }
+        return slot.card;
+    }
+
+    /**
+     * Удаляет карту по идентификатору и регистрирует отмену, возвращающую карту
+     * на прежнее место в таблице и в индексы. Ячейки при этом не уплотняются,
+     * чтобы позиция карты оставалась действительной до отмены.
+     *
+     * @param id идентификатор карты
+     * @param undo журнал отмены изменения
+     * @return удаленная карта или null, если карта не найдена
+     */
+    Card remove(Long id, UndoLog undo) {
+        Slot slot = id == null ? null : byId.remove(id);
+        if (slot == null) {
+            return null;
+        }
+        clear(slot);
+        undo.add(() -> {
+            slots.set(slot.position, slot);
+            byId.put(id, slot);
+            categories.put(slot.card);
+            expiry.put(slot.card);
+            tombstones--;
+        });
+        return slot.card;
+    }
+
+    /**
+     * Убирает карту удаленной ячейки из индексов и оставляет на ее месте пустую ячейку.
+     *
+     * @param slot удаленная ячейка
+     */
+    private void clear(Slot slot) {
+        categories.remove(slot.card.getId());
+        expiry.remove(slot.card.getId());
+        slots.set(slot.position, null);
+        tombstones++;
+    }
+
+    /**
+     * Находит все карты с указанной категорией без учета регистра.
+     *
+     * @param category категория кэшбэка
+     * @return список карт с указанной категорией
+     */
+    List<Card> findByCategory(String category) {
+        return categories.find(category);
+    }
+
+    /**
+     * Находит активную карту категории с максимальным кэшбэком.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    Optional<Card> findBestForCategory(String category) {
+        return categories.best(category);
+    }
+
+    /**
+     * Находит активные карты, дата изменения категории которых раньше указанной.
+     *
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     */
+    List<Card> findExpiring(LocalDate date) {
+        return expiry.findBefore(date);
+    }
+
+    /**
+     * Возвращает карты в порядке добавления.
+     *
+     * @return новый список карт
+     */
+    List<Card> list() {
+        List<Card> result = new ArrayList<>(byId.size());
+        for (Slot slot : slots) {
+            if (slot != null) {
+                result.add(slot.card);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает количество карт.
+     *
+     * @return количество карт
+     */
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * Возвращает наибольший идентификатор карты.
+     *
+     * @return наибольший идентификатор или 0, если таблица пуста
+     */
+    long maxId() {
+        long max = 0;
+        for (Slot slot : slots) {
+            if (slot != null) {
+                max = Math.max(max, slot.card.getId());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Удаляет пустые ячейки, сохраняя порядок карт.
+     */
+    private void compact() {
+        int write = 0;
+        for (Slot slot : slots) {
+            if (slot != null) {
+                slot.position = write;
+                slots.set(write++, slot);
+            }
+        }
+        slots.subList(write, slots.size()).clear();
+        tombstones = 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Инвертированный индекс карт по категории кэшбэка без учета регистра.
+ * Для каждой категории хранит все карты в порядке добавления и активные карты,
+ * упорядоченные по убыванию кэшбэка, поэтому лучшая карта категории
+ * находится за O(log n) без построения промежуточных списков.
+ * Индекс запоминает проиндексированные значения полей, поэтому корректно
+ * обновляется, даже если объект карты был изменен до повторной индексации.
+ */
+final class CategoryIndex {
+    private static final Comparator<Key> BY_CASHBACK_DESC = Comparator
+            .comparingDouble(Key::cashback).reversed()
+            .thenComparingLong(Key::id);
+
+    private final LongHashMap<Key> keys = new LongHashMap<>();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    /**
+     * Проиндексированные значения полей карты.
+     *
+     * @param category нормализованная категория
+     * @param cashback размер кэшбэка
+     * @param active признак активности
+     * @param id идентификатор карты
+     */
+    private record Key(String category, double cashback, boolean active, long id) {
+    }
+
+    /**
+     * Карты одной категории.
+     */
+    private static final class Bucket {
+        private final Map<Long, Card> cards = new LinkedHashMap<>();
+        private final TreeSet<Key> active = new TreeSet<>(BY_CASHBACK_DESC);
+    }
+
+    /**
+     * Добавляет карту в индекс или переиндексирует ее, если она уже была добавлена.
+     *
+     * @param card карта с назначенным идентификатором
+     */
+    void put(Card card) {
+        Key key = new Key(normalize(card.getCategory()), card.getCashback(), card.isActive(), card.getId());
+        Key previous = keys.put(key.id(), key);
+        if (previous != null && !previous.category().equals(key.category())) {
+            removeFromBucket(previous);
+        }
+        Bucket bucket = buckets.computeIfAbsent(key.category(), c -> new Bucket());
+        bucket.cards.put(key.id(), card);
+        if (previous != null && previous.category().equals(key.category())) {
+            bucket.active.remove(previous);
+        }
+        if (key.active()) {
+            bucket.active.add(key);
+        }
+    }
+
+    /**
+     * Удаляет карту из индекса.
+     *
+     * @param id идентификатор карты
+     */
+    void remove(long id) {
+        Key previous = keys.remove(id);
+        if (previous != null) {
+            removeFromBucket(previous);
+        }
+    }
+
+    /**
+     * Находит все карты категории.
+     *
+     * @param category категория кэшбэка в любом регистре
+     * @return список карт категории в порядке добавления
+     */
+    List<Card> find(String category) {
+        Bucket bucket = buckets.get(normalize(category));
+        return bucket == null ? List.of() : new ArrayList<>(bucket.cards.values());
+    }
+
+    /**
+     * Находит активную карту категории с максимальным кэшбэком.
+     *
+     * @param category категория кэшбэка в любом регистре
+     * @return Optional, содержащий лучшую карту, если в категории есть активные карты
+     */
+    Optional<Card> best(String category) {
+        Bucket bucket = buckets.get(normalize(category));
+        if (bucket == null || bucket.active.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(bucket.cards.get(bucket.active.first().id()));
+    }
+
+    /**
+     * Удаляет карту из корзины ее прежней категории.
+     *
+     * @param key проиндексированные значения полей карты
+     */
+    private void removeFromBucket(Key key) {
+        Bucket bucket = buckets.get(key.category());
+        bucket.cards.remove(key.id());
+        bucket.active.remove(key);
+        if (bucket.cards.isEmpty()) {
+            buckets.remove(key.category());
+        }
+    }
+
+    /**
+     * Приводит категорию к виду, в котором она хранится в индексе.
+     *
+     * @param category категория кэшбэка
+     * @return категория в нижнем регистре
+     */
+    private static String normalize(String category) {
+        return category == null ? "" : category.toLowerCase(Locale.ROOT);
+    }
+}
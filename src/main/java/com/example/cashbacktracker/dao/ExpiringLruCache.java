@@ -0,0 +1,131 @@
+package com.example.cashbacktracker.dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Кэш с ограничением по количеству записей и сроку жизни.
+ * При переполнении вытесняется запись, к которой дольше всего не обращались;
+ * запись с истекшим сроком жизни удаляется при следующем обращении к ней.
+ * <p>
+ * Каждое удаление записей увеличивает поколение кэша. Значение, загруженное из
+ * хранилища, кладется в кэш только если поколение не изменилось с начала загрузки,
+ * поэтому загрузка, пересекшаяся с изменением, не вернет в кэш устаревшие данные.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+final class ExpiringLruCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Значение кэша и момент истечения его срока жизни.
+     */
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * Создает кэш.
+     *
+     * @param maxEntries максимальное количество записей
+     * @param ttlNanos срок жизни записи в наносекундах
+     * @param clock источник текущего времени в наносекундах
+     */
+    ExpiringLruCache(int maxEntries, long ttlNanos, LongSupplier clock) {
+        if (maxEntries <= 0 || ttlNanos <= 0) {
+            throw new IllegalArgumentException("Размер кэша и срок жизни записей должны быть положительными");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Возвращает значение из кэша и учитывает попадание или промах.
+     *
+     * @param key ключ
+     * @return значение или null, если его нет в кэше или срок его жизни истек
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Возвращает текущее поколение кэша; используется перед загрузкой значения из хранилища.
+     *
+     * @return поколение кэша
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Кладет значение в кэш, если с начала его загрузки записи кэша не удалялись.
+     *
+     * @param key ключ
+     * @param value значение
+     * @param loadGeneration поколение кэша на момент начала загрузки
+     */
+    synchronized void put(K key, V value, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Удаляет запись по ключу.
+     *
+     * @param key ключ
+     */
+    synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Удаляет записи, ключи которых удовлетворяют условию.
+     *
+     * @param filter условие для ключей
+     */
+    synchronized void invalidateIf(Predicate<? super K> filter) {
+        generation++;
+        entries.keySet().removeIf(filter);
+    }
+
+    /**
+     * Возвращает статистику кэша.
+     *
+     * @return статистика попаданий, промахов и вытеснений
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+}
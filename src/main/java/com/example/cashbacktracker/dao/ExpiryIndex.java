@@ -0,0 +1,69 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Индекс активных карт по дате изменения категории.
+ * Поиск истекающих карт выполняется по головной части упорядоченного
+ * по дате отображения, поэтому его стоимость пропорциональна количеству
+ * найденных карт, а не общему числу карт.
+ * Индекс запоминает проиндексированную дату, поэтому корректно
+ * обновляется, даже если объект карты был изменен до повторной индексации.
+ */
+final class ExpiryIndex {
+    private final LongHashMap<LocalDate> indexedDates = new LongHashMap<>();
+    private final NavigableMap<LocalDate, Map<Long, Card>> byDate = new TreeMap<>();
+
+    /**
+     * Добавляет активную карту в индекс, переиндексирует ее или исключает неактивную карту.
+     *
+     * @param card карта с назначенным идентификатором
+     */
+    void put(Card card) {
+        remove(card.getId());
+        if (card.isActive() && card.getCategoryChangeDate() != null) {
+            indexedDates.put(card.getId(), card.getCategoryChangeDate());
+            byDate.computeIfAbsent(card.getCategoryChangeDate(), d -> new LinkedHashMap<>())
+                    .put(card.getId(), card);
+        }
+    }
+
+    /**
+     * Удаляет карту из индекса.
+     *
+     * @param id идентификатор карты
+     */
+    void remove(long id) {
+        LocalDate date = indexedDates.remove(id);
+        if (date == null) {
+            return;
+        }
+        Map<Long, Card> cards = byDate.get(date);
+        cards.remove(id);
+        if (cards.isEmpty()) {
+            byDate.remove(date);
+        }
+    }
+
+    /**
+     * Находит активные карты, дата изменения категории которых раньше указанной.
+     *
+     * @param date дата истечения категории
+     * @return список карт, упорядоченный по дате изменения категории
+     */
+    List<Card> findBefore(LocalDate date) {
+        List<Card> result = new ArrayList<>();
+        for (Map<Long, Card> cards : byDate.headMap(date, false).values()) {
+            result.addAll(cards.values());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cashbacktracker.dao;
+
+/**
+ * Политика сброса данных на диск при атомарной перезаписи файлов хранилища
+ * и при дописывании журнала изменений.
+ * Файл всегда пишется во временный файл и атомарно переименовывается, поэтому
+ * при сбое остается либо старая, либо новая версия; политика определяет,
+ * переживет ли новая версия (или дописанная запись журнала) внезапное отключение питания.
+ */
+public enum FsyncPolicy {
+    /**
+     * Не вызывать fsync: самый быстрый вариант, защищает от сбоя процесса,
+     * но не от сбоя операционной системы или питания.
+     */
+    NONE,
+    /**
+     * Сбрасывать на диск содержимое временного файла перед переименованием,
+     * а для журнала — каждую дописанную порцию записей.
+     */
+    FILE,
+    /**
+     * Дополнительно сбрасывать на диск каталог после переименования или создания
+     * файла журнала, чтобы сохранилась и сама запись каталога.
+     */
+    FILE_AND_DIRECTORY
+}
@@ -0,0 +1,140 @@
+package com.example.cashbacktracker.dao;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Групповая фиксация изменений файлового хранилища.
+ * Изменения только помечают хранилище измененным, а запись выполняется одним
+ * фоновым потоком не чаще одного раза за интервал или сразу после накопления
+ * заданного количества изменений. Поэтому серия из N изменений приводит
+ * к одной перезаписи файлов вместо N.
+ * Несохраненные изменения записываются при явном вызове {@link #flush()},
+ * при закрытии и при завершении JVM (через shutdown hook).
+ * Об ошибках фоновой записи сообщается получателю {@link #setFailureListener(Consumer)}
+ * сразу, а сама ошибка выбрасывается при следующем явном {@link #flush()} или {@link #close()}.
+ */
+final class GroupCommitWriter implements AutoCloseable {
+    private final Runnable flushAction;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Thread shutdownHook;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile RuntimeException lastFailure;
+    private volatile Consumer<RuntimeException> failureListener = error -> { };
+
+    /**
+     * Создает писатель и регистрирует shutdown hook.
+     *
+     * @param name имя фонового потока
+     * @param interval максимальная задержка записи после первого изменения
+     * @param batchSize количество изменений, после которого запись выполняется сразу
+     * @param flushAction действие, записывающее измененные данные в файлы
+     */
+    GroupCommitWriter(String name, Duration interval, int batchSize, Runnable flushAction) {
+        this.flushAction = flushAction;
+        this.intervalMillis = interval.toMillis();
+        this.batchSize = batchSize;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.shutdownHook = new Thread(this::flushQuietly, name + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Устанавливает получателя ошибок фоновой записи.
+     * Получатель вызывается в фоновом потоке записи или в потоке shutdown hook.
+     *
+     * @param failureListener получатель ошибок
+     */
+    void setFailureListener(Consumer<RuntimeException> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    /**
+     * Регистрирует изменение и при необходимости планирует запись.
+     */
+    void changed() {
+        if (pending.incrementAndGet() >= batchSize) {
+            scheduler.execute(this::flushQuietly);
+        } else if (scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flushQuietly, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Возвращает количество изменений, еще не записанных в файлы.
+     *
+     * @return количество несохраненных изменений
+     */
+    int pendingChanges() {
+        return pending.get();
+    }
+
+    /**
+     * Синхронно записывает несохраненные изменения.
+     * Если предыдущая фоновая запись завершилась ошибкой, повторяет ее
+     * и при повторной ошибке выбрасывает исключение.
+     */
+    synchronized void flush() {
+        scheduled.set(false);
+        int changes = pending.get();
+        if (changes == 0 && lastFailure == null) {
+            return;
+        }
+        try {
+            flushAction.run();
+            pending.addAndGet(-changes);
+            lastFailure = null;
+        } catch (RuntimeException e) {
+            lastFailure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает изменения из фонового потока. Ошибка передается получателю ошибок
+     * и сохраняется до следующего явного вызова.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // ошибка сохранена в lastFailure и будет выброшена при явном flush() или close()
+            try {
+                failureListener.accept(e);
+            } catch (RuntimeException listenerFailure) {
+                // ошибка получателя не должна останавливать фоновую запись
+            }
+        }
+    }
+
+    /**
+     * Записывает несохраненные изменения и останавливает фоновый поток.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM уже завершается, shutdown hook выполнит запись сам
+        }
+        flush();
+    }
+}
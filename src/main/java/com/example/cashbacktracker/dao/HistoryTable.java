@@ -0,0 +1,121 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.CardHistory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * История изменений файлового хранилища в памяти.
+ * Хранит записи в порядке добавления (в этом порядке они сохраняются в файл)
+ * и индекс по идентификатору карты ({@link LongHashMap}), в котором записи
+ * каждой карты упорядочены по дате изменения по убыванию, как в запросе SQLite.
+ * Поэтому история карты возвращается за время, пропорциональное ее размеру.
+ */
+final class HistoryTable {
+    private static final Comparator<CardHistory> BY_CHANGE_DATE_DESC = Comparator.comparing(
+            CardHistory::getChangeDate, Comparator.nullsLast(Comparator.<LocalDate>reverseOrder()));
+
+    private final List<CardHistory> records = new ArrayList<>();
+    private final LongHashMap<List<CardHistory>> byCardId = new LongHashMap<>();
+
+    /**
+     * Добавляет запись истории.
+     * Запись вставляется в историю карты двоичным поиском после записей с той же датой.
+     *
+     * @param record запись истории
+     */
+    void add(CardHistory record) {
+        records.add(record);
+        if (record.getCardId() == null) {
+            return;
+        }
+        List<CardHistory> cardHistory = byCardId.get(record.getCardId());
+        if (cardHistory == null) {
+            cardHistory = new ArrayList<>();
+            byCardId.put(record.getCardId(), cardHistory);
+        }
+        int low = 0;
+        int high = cardHistory.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BY_CHANGE_DATE_DESC.compare(cardHistory.get(mid), record) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        cardHistory.add(low, record);
+    }
+
+    /**
+     * Добавляет несколько записей истории.
+     *
+     * @param records записи истории
+     */
+    void addAll(List<CardHistory> records) {
+        for (CardHistory record : records) {
+            add(record);
+        }
+    }
+
+    /**
+     * Удаляет ранее добавленную запись истории; используется для отмены неудачного изменения.
+     * Запись ищется по ссылке с конца, поэтому удаление только что добавленных записей дешево.
+     *
+     * @param record запись истории
+     */
+    void remove(CardHistory record) {
+        removeLast(records, record);
+        if (record.getCardId() != null) {
+            List<CardHistory> cardHistory = byCardId.get(record.getCardId());
+            if (cardHistory != null) {
+                removeLast(cardHistory, record);
+                if (cardHistory.isEmpty()) {
+                    byCardId.remove(record.getCardId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет последнее вхождение записи в список, сравнивая по ссылке.
+     *
+     * @param list список записей
+     * @param record запись истории
+     */
+    private static void removeLast(List<CardHistory> list, CardHistory record) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == record) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Возвращает историю карты.
+     *
+     * @param cardId идентификатор карты
+     * @return неизменяемый список записей, упорядоченный по дате изменения по убыванию
+     */
+    List<CardHistory> findByCardId(Long cardId) {
+        if (cardId == null) {
+            return List.of();
+        }
+        List<CardHistory> cardHistory = byCardId.get(cardId);
+        return cardHistory == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(cardHistory));
+    }
+
+    /**
+     * Возвращает все записи в порядке добавления.
+     *
+     * @return список записей истории; не изменяется вызывающим кодом
+     */
+    List<CardHistory> list() {
+        return records;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Запись журнала изменений файлового хранилища.
+ * Каждая запись описывает одну мутацию и сохраняется отдельной строкой JSON Lines.
+ *
+ * @param op тип изменения
+ * @param card сохраненная или обновленная карта
+ * @param cardId идентификатор удаленной карты
+ * @param history добавленная запись истории
+ * @param nextHistoryId следующий свободный идентификатор записи истории
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record JournalRecord(Operation op, Card card, Long cardId, CardHistory history, Long nextHistoryId) {
+
+    /**
+     * Тип изменения, записанного в журнал.
+     */
+    enum Operation {
+        SAVE_CARD,
+        UPDATE_CARD,
+        DELETE_CARD,
+        SAVE_HISTORY,
+        NEXT_HISTORY_ID
+    }
+
+    /**
+     * Создает запись о добавлении карты.
+     *
+     * @param card добавленная карта
+     * @return запись журнала
+     */
+    static JournalRecord saveCard(Card card) {
+        return new JournalRecord(Operation.SAVE_CARD, card, null, null, null);
+    }
+
+    /**
+     * Создает запись об обновлении карты.
+     *
+     * @param card обновленная карта
+     * @return запись журнала
+     */
+    static JournalRecord updateCard(Card card) {
+        return new JournalRecord(Operation.UPDATE_CARD, card, null, null, null);
+    }
+
+    /**
+     * Создает запись об удалении карты.
+     *
+     * @param id идентификатор удаленной карты
+     * @return запись журнала
+     */
+    static JournalRecord deleteCard(Long id) {
+        return new JournalRecord(Operation.DELETE_CARD, null, id, null, null);
+    }
+
+    /**
+     * Создает запись о добавлении записи истории.
+     *
+     * @param history добавленная запись истории
+     * @return запись журнала
+     */
+    static JournalRecord saveHistory(CardHistory history) {
+        return new JournalRecord(Operation.SAVE_HISTORY, null, null, history, null);
+    }
+
+    /**
+     * Создает запись со следующим свободным идентификатором истории.
+     * Позволяет назначать идентификаторы новым записям истории без загрузки снимка истории.
+     *
+     * @param id следующий свободный идентификатор записи истории
+     * @return запись журнала
+     */
+    static JournalRecord nextHistoryId(long id) {
+        return new JournalRecord(Operation.NEXT_HISTORY_ID, null, null, null, id);
+    }
+}
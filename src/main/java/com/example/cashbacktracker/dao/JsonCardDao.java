@@ -6,37 +6,155 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Реализация CardDao для хранения данных в JSON формате.
  * Использует Jackson для сериализации/десериализации данных.
+ * <p>
+ * В режиме журнала изменения не перезаписывают файлы целиком, а дописываются
+ * в журнал JSON Lines (см. {@link JsonJournal}). Снимки {@code cards.json} и
+ * {@code card_history.json} пересобираются фоновым уплотнением, а при запуске
+ * данные восстанавливаются из снимка и журнала.
+ * <p>
+ * Файлы читаются потоково (см. {@link StreamingLoader}), а история загружается
+ * только при первом обращении к ней. В режиме журнала новые записи истории
+ * для сохраняемых и обновляемых карт только дописываются в журнал: следующий
+ * идентификатор истории хранится в журнале, поэтому снимок истории для этого
+ * не загружается.
+ * <p>
+ * Экземпляр потокобезопасен: чтения выполняются параллельно под разделяемой
+ * блокировкой, изменения и запись в файлы — под исключающей
+ * (см. {@link ReadWriteGuard}).
  */
 public class JsonCardDao implements CardDao {
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final String HISTORY_FILE_NAME = "card_history.json";
+
     private final File file;
     private final File historyFile;
     private final ObjectMapper mapper;
+    private final FsyncPolicy fsyncPolicy;
     private final AtomicLong nextId;
-    private List<Card> cards;
-    private List<CardHistory> history;
+    private final ReadWriteGuard guard = new ReadWriteGuard();
+    private final AtomicLong nextHistoryId;
+    private final JsonJournal journal;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile RuntimeException compactionFailure;
+    private volatile Consumer<RuntimeException> backgroundFailureListener = error -> { };
+    private final List<CardHistory> pendingHistory = new ArrayList<>();
+    private CardTable cards;
+    private volatile HistoryTable history;
+    private boolean historyIdKnown;
+    private LoadStats cardsLoadStats = LoadStats.EMPTY;
+    private volatile LoadStats historyLoadStats = LoadStats.EMPTY;
+    private final GroupCommitWriter commitWriter;
+    private volatile boolean cardsDirty;
+    private volatile boolean historyDirty;
     
     /**
-     * Создает новый экземпляр JsonCardDao.
+     * Создает новый экземпляр JsonCardDao, перезаписывающий файлы при каждом изменении.
      *
      * @param filePath путь к файлу для хранения данных карт
      */
     public JsonCardDao(String filePath) {
+        this(filePath, false);
+    }
+    
+    /**
+     * Создает новый экземпляр JsonCardDao.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param journaled true для записи изменений в журнал с фоновым уплотнением снимков
+     */
+    public JsonCardDao(String filePath, boolean journaled) {
+        this(filePath, HISTORY_FILE_NAME, createMapper(), journaled, null, 0, FsyncPolicy.FILE);
+    }
+    
+    /**
+     * Создает новый экземпляр JsonCardDao с групповой фиксацией изменений:
+     * файлы перезаписываются фоновым потоком не чаще одного раза за интервал
+     * или после накопления заданного количества изменений.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     */
+    public JsonCardDao(String filePath, Duration flushInterval, int flushBatchSize) {
+        this(filePath, HISTORY_FILE_NAME, createMapper(), false, flushInterval, flushBatchSize, FsyncPolicy.FILE);
+    }
+    
+    /**
+     * Создает новый экземпляр JsonCardDao с групповой фиксацией изменений
+     * и заданной политикой сброса файлов на диск.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     * @param fsyncPolicy политика сброса на диск при перезаписи файлов
+     */
+    public JsonCardDao(String filePath, Duration flushInterval, int flushBatchSize, FsyncPolicy fsyncPolicy) {
+        this(filePath, HISTORY_FILE_NAME, createMapper(), false, flushInterval, flushBatchSize, fsyncPolicy);
+    }
+    
+    /**
+     * Создает новый экземпляр хранилища с заданным форматом данных.
+     * Используется наследниками, хранящими те же данные в другом формате Jackson.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param historyFileName имя файла истории в каталоге файла карт
+     * @param mapper ObjectMapper формата хранения с зарегистрированным JavaTimeModule
+     * @param journaled true для записи изменений в журнал с фоновым уплотнением снимков
+     * @param flushInterval максимальная задержка групповой фиксации; null для записи при каждом изменении
+     * @param flushBatchSize количество изменений, после которого групповая фиксация выполняется сразу
+     * @param fsyncPolicy политика сброса на диск при перезаписи файлов
+     */
+    protected JsonCardDao(String filePath, String historyFileName, ObjectMapper mapper, boolean journaled,
+                          Duration flushInterval, int flushBatchSize, FsyncPolicy fsyncPolicy) {
         this.file = new File(filePath);
-        this.historyFile = new File(file.getParent() + "/card_history.json");
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
+        this.fsyncPolicy = fsyncPolicy;
+        this.historyFile = new File(file.getParent() + "/" + historyFileName);
+        this.mapper = mapper;
         this.nextId = new AtomicLong(1);
+        this.nextHistoryId = new AtomicLong(1);
+        this.historyIdKnown = !historyFile.exists();
+        this.journal = journaled ? new JsonJournal(file.toPath(), mapper, fsyncPolicy) : null;
+        this.compactor = journaled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "json-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.commitWriter = flushInterval == null ? null
+                : new GroupCommitWriter("json-group-commit", flushInterval, flushBatchSize, this::writeDirty);
         loadData();
-        loadHistory();
+        if (journal != null) {
+            replayJournal();
+        }
+    }
+    
+    /**
+     * Создает ObjectMapper для хранения данных в JSON.
+     *
+     * @return настроенный ObjectMapper
+     */
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
     }
     
     /**
@@ -44,36 +162,411 @@ public class JsonCardDao implements CardDao {
      * Если файл не существует, создает пустой список карт.
      */
     private void loadData() {
+        cards = new CardTable();
         if (file.exists()) {
             try {
-                cards = mapper.readValue(file, mapper.getTypeFactory().constructCollectionType(List.class, Card.class));
-                long maxId = cards.stream()
-                        .mapToLong(Card::getId)
-                        .max()
-                        .orElse(0);
+                cardsLoadStats = StreamingLoader.readJson(mapper, file, Card.class, cards::put);
+                long maxId = cards.maxId();
                 nextId.set(maxId + 1);
             } catch (IOException e) {
                 throw new RuntimeException("Ошибка при загрузке данных из JSON", e);
             }
-        } else {
-            cards = new ArrayList<>();
         }
     }
     
     /**
-     * Загружает историю изменений из JSON файла.
+     * Загружает историю изменений из JSON файла при первом обращении к ней.
+     * Записи истории, восстановленные из журнала до загрузки, добавляются после снимка,
+     * кроме записей, уже попавших в снимок (с тем же идентификатором).
      * Если файл не существует, создает пустой список истории.
      */
-    private void loadHistory() {
+    private void ensureHistoryLoaded() {
+        if (history != null) {
+            return;
+        }
+        List<CardHistory> loaded = new ArrayList<>();
         if (historyFile.exists()) {
             try {
-                history = mapper.readValue(historyFile, mapper.getTypeFactory().constructCollectionType(List.class, CardHistory.class));
+                historyLoadStats = StreamingLoader.readJson(mapper, historyFile, CardHistory.class, loaded::add);
             } catch (IOException e) {
                 throw new RuntimeException("Ошибка при загрузке истории из JSON", e);
             }
+        }
+        Set<Long> snapshotIds = new HashSet<>();
+        for (CardHistory entry : loaded) {
+            if (entry.getId() != null) {
+                snapshotIds.add(entry.getId());
+            }
+        }
+        long snapshotHistoryMaxId = snapshotIds.stream().mapToLong(Long::longValue).max().orElse(0);
+        for (CardHistory entry : pendingHistory) {
+            if (entry.getId() == null || !snapshotIds.contains(entry.getId())) {
+                loaded.add(entry);
+            }
+        }
+        pendingHistory.clear();
+        nextHistoryId.set(Math.max(nextHistoryId.get(), snapshotHistoryMaxId + 1));
+        historyIdKnown = true;
+        history = new HistoryTable();
+        history.addAll(loaded);
+    }
+    
+    /**
+     * Устанавливает получателя ошибок фоновой записи: групповой фиксации и уплотнения журнала.
+     * Такие ошибки не могут быть выброшены вызывающему коду сразу, поэтому о них сообщается
+     * получателю, а сама ошибка выбрасывается при следующем {@link #flush()} или {@link #close()}.
+     * Получатель вызывается в фоновом потоке.
+     *
+     * @param listener получатель ошибок
+     */
+    public void setBackgroundFailureListener(Consumer<RuntimeException> listener) {
+        this.backgroundFailureListener = listener;
+        if (commitWriter != null) {
+            commitWriter.setFailureListener(listener);
+        }
+    }
+    
+    /**
+     * Передает ошибку фоновой записи получателю; ошибка получателя не влияет на запись.
+     *
+     * @param failure ошибка фоновой записи
+     */
+    private void notifyBackgroundFailure(RuntimeException failure) {
+        try {
+            backgroundFailureListener.accept(failure);
+        } catch (RuntimeException e) {
+            // ошибка получателя не должна останавливать фоновую запись
+        }
+    }
+    
+    /**
+     * Возвращает статистику загрузки файла карт.
+     *
+     * @return статистика загрузки; пустая, если файл отсутствовал
+     */
+    public LoadStats getCardsLoadStats() {
+        return cardsLoadStats;
+    }
+    
+    /**
+     * Возвращает статистику загрузки файла истории.
+     *
+     * @return статистика загрузки; пустая, если история еще не запрашивалась
+     */
+    public LoadStats getHistoryLoadStats() {
+        return historyLoadStats;
+    }
+    
+    /**
+     * Применяет к загруженному снимку записи журнала.
+     * Записи истории, уже попавшие в снимок, пропускаются по идентификатору.
+     * Если найден сегмент незавершенного уплотнения, снимок пересобирается сразу.
+     */
+    private void replayJournal() {
+        try {
+            boolean interruptedCompaction = journal.hasSegment();
+            journal.replay(this::applyJournalRecord);
+            if (interruptedCompaction) {
+                compactNow();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при восстановлении данных из журнала JSON", e);
+        }
+    }
+    
+    /**
+     * Применяет одну запись журнала к данным в памяти.
+     *
+     * @param record запись журнала
+     */
+    private void applyJournalRecord(JournalRecord record) {
+        switch (record.op()) {
+            case SAVE_CARD, UPDATE_CARD -> {
+                Card card = record.card();
+                cards.put(card);
+                if (card.getId() >= nextId.get()) {
+                    nextId.set(card.getId() + 1);
+                }
+            }
+            case DELETE_CARD -> cards.remove(record.cardId());
+            case SAVE_HISTORY -> {
+                CardHistory entry = record.history();
+                pendingHistory.add(entry);
+                if (entry.getId() != null && entry.getId() >= nextHistoryId.get()) {
+                    nextHistoryId.set(entry.getId() + 1);
+                }
+            }
+            case NEXT_HISTORY_ID -> {
+                nextHistoryId.set(Math.max(nextHistoryId.get(), record.nextHistoryId()));
+                historyIdKnown = true;
+            }
+        }
+    }
+    
+    /**
+     * Фиксирует изменение: в режиме журнала дописывает записи в журнал,
+     * при групповой фиксации помечает затронутые файлы для фоновой записи,
+     * иначе сразу перезаписывает их.
+     *
+     * @param records записи журнала, описывающие изменение
+     * @param cardsChanged true если изменился список карт
+     * @param historyChanged true если изменилась история
+     */
+    private void persist(List<JournalRecord> records, boolean cardsChanged, boolean historyChanged) {
+        if (commitWriter != null) {
+            cardsDirty |= cardsChanged;
+            historyDirty |= historyChanged;
+            commitWriter.changed();
+            return;
+        }
+        if (journal == null) {
+            if (cardsChanged) {
+                saveData();
+            }
+            if (historyChanged) {
+                saveHistory();
+            }
+            return;
+        }
+        try {
+            journal.append(records);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при записи в журнал JSON", e);
+        }
+        if (journal.size() >= COMPACTION_THRESHOLD) {
+            scheduleCompaction();
+        }
+    }
+    
+    /**
+     * Записывает файлы, помеченные для групповой фиксации. Выполняется под
+     * разделяемой блокировкой, поэтому изменения ждут окончания записи, а чтения — нет.
+     */
+    private void writeDirty() {
+        guard.read(() -> {
+            if (cardsDirty) {
+                saveData();
+                cardsDirty = false;
+            }
+            if (historyDirty) {
+                saveHistory();
+                historyDirty = false;
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Запускает фоновое уплотнение: текущий журнал переносится в сегмент,
+     * копии данных записываются в снимки, после чего сегмент удаляется.
+     * Новый журнал начинается со следующего свободного идентификатора истории.
+     * Пока предыдущее уплотнение не завершено, новое не запускается.
+     * Если сегмент остался от неудачного уплотнения, снимки пересобираются сразу
+     * в вызывающем потоке, чтобы сегмент не был заменен новым.
+     * Выполняется под исключающей блокировкой.
+     */
+    private void scheduleCompaction() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        if (journal.hasSegment()) {
+            try {
+                compactNow();
+            } catch (IOException e) {
+                compactionFailure = new RuntimeException("Ошибка при уплотнении журнала JSON", e);
+            } finally {
+                compacting.set(false);
+            }
+            return;
+        }
+        ensureHistoryLoaded();
+        List<Card> cardsSnapshot = cards.list().stream().map(Card::copy).toList();
+        List<CardHistory> historySnapshot = history.list().stream().map(CardHistory::copy).toList();
+        try {
+            journal.rotate();
+            journal.append(List.of(JournalRecord.nextHistoryId(nextHistoryId.get())));
+        } catch (IOException e) {
+            // изменение уже записано в журнал, поэтому ошибка не отменяет его
+            compactionFailure = new RuntimeException("Ошибка при подготовке уплотнения журнала JSON", e);
+            compacting.set(false);
+            return;
+        }
+        compactor.execute(() -> {
+            try {
+                writeSnapshot(file, cardsSnapshot);
+                writeSnapshot(historyFile, historySnapshot);
+                journal.deleteSegment();
+            } catch (IOException e) {
+                // сегмент остается на диске: его перенесет в снимок следующее уплотнение,
+                // flush(), close() или запуск
+                RuntimeException failure = new RuntimeException("Ошибка при уплотнении журнала JSON", e);
+                compactionFailure = failure;
+                notifyBackgroundFailure(failure);
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Пересобирает снимки из текущих данных в вызывающем потоке, после чего удаляет
+     * сегмент и журнал. Новый журнал начинается со следующего свободного идентификатора истории.
+     * Выполняется под исключающей блокировкой.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void compactNow() throws IOException {
+        ensureHistoryLoaded();
+        writeSnapshot(file, cards.list());
+        writeSnapshot(historyFile, new ArrayList<>(history.list()));
+        journal.clear();
+        journal.append(List.of(JournalRecord.nextHistoryId(nextHistoryId.get())));
+        compactionFailure = null;
+    }
+    
+    /**
+     * Повторяет неудачное фоновое уплотнение и при повторной ошибке выбрасывает исключение.
+     * Выполняется под исключающей блокировкой.
+     */
+    private void retryFailedCompaction() {
+        if (compactionFailure == null || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactNow();
+        } catch (IOException e) {
+            compactionFailure = new RuntimeException("Ошибка при уплотнении журнала JSON", e);
+        } finally {
+            compacting.set(false);
+        }
+        RuntimeException failure = compactionFailure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Записывает снимок данных во временный файл и атомарно заменяет им основной файл
+     * (см. {@link AtomicFileWriter}).
+     *
+     * @param target файл снимка
+     * @param value данные для записи
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void writeSnapshot(File target, Object value) throws IOException {
+        AtomicFileWriter.write(target.toPath(), fsyncPolicy, out -> mapper.writeValue(out, value));
+    }
+    
+    /**
+     * Создает запись истории для текущего состояния карты.
+     * В режиме журнала история загружается, только если следующий идентификатор
+     * истории неизвестен (журнал еще не уплотнялся, а снимок истории существует).
+     *
+     * @param card карта
+     * @return запись истории с присвоенным идентификатором
+     */
+    private CardHistory createHistoryRecord(Card card) {
+        if (journal == null || !historyIdKnown) {
+            ensureHistoryLoaded();
+        }
+        CardHistory historyRecord = new CardHistory();
+        historyRecord.setId(nextHistoryId.getAndIncrement());
+        historyRecord.setCardId(card.getId());
+        historyRecord.setCategory(card.getCategory());
+        historyRecord.setCashbackPercentage(card.getCashback());
+        historyRecord.setChangeDate(card.getCategoryChangeDate());
+        historyRecord.setRecordDate(LocalDateTime.now());
+        return historyRecord;
+    }
+    
+    /**
+     * Добавляет новую запись истории. Если история еще не загружена, в режиме журнала
+     * запись откладывается до загрузки, иначе история сначала загружается.
+     *
+     * @param historyRecord запись истории
+     * @param undo журнал отмены изменения
+     */
+    private void addHistory(CardHistory historyRecord, UndoLog undo) {
+        if (history == null && journal != null) {
+            pendingHistory.add(historyRecord);
         } else {
-            history = new ArrayList<>();
+            ensureHistoryLoaded();
+            history.add(historyRecord);
         }
+        undo.add(() -> {
+            if (history != null) {
+                history.remove(historyRecord);
+            } else {
+                pendingHistory.removeIf(entry -> entry == historyRecord);
+            }
+        });
+    }
+    
+    /**
+     * Назначает новой записи истории следующий идентификатор, если он не задан.
+     * В режиме журнала заданный идентификатор сохраняется, только если он больше всех
+     * известных: иначе запись получает новый идентификатор, чтобы не совпасть с записью
+     * снимка и не потеряться при восстановлении из журнала. Вызывается после загрузки истории.
+     *
+     * @param historyRecord запись истории
+     * @param undo журнал отмены изменения
+     */
+    private void assignHistoryId(CardHistory historyRecord, UndoLog undo) {
+        Long previousId = historyRecord.getId();
+        if (previousId != null && (journal == null || previousId >= nextHistoryId.get())) {
+            nextHistoryId.set(Math.max(nextHistoryId.get(), previousId + 1));
+            return;
+        }
+        historyRecord.setId(nextHistoryId.getAndIncrement());
+        undo.add(() -> historyRecord.setId(previousId));
+    }
+    
+    /**
+     * Назначает новой карте следующий идентификатор.
+     *
+     * @param card карта
+     * @param undo журнал отмены изменения
+     */
+    private void assignCardId(Card card, UndoLog undo) {
+        Long previousId = card.getId();
+        card.setId(nextId.getAndIncrement());
+        undo.add(() -> card.setId(previousId));
+    }
+    
+    /**
+     * Добавляет карту в таблицу или заменяет карту с тем же идентификатором.
+     *
+     * @param card карта с назначенным идентификатором
+     * @param undo журнал отмены изменения
+     */
+    private void putCard(Card card, UndoLog undo) {
+        Long id = card.getId();
+        Card previous = cards.put(card);
+        undo.add(previous == null ? () -> cards.remove(id) : () -> cards.put(previous));
+    }
+    
+    /**
+     * Выполняет изменение под исключающей блокировкой. Если изменение не удалось
+     * записать, данные в памяти, счетчики и назначенные идентификаторы возвращаются
+     * в состояние до изменения (см. {@link UndoLog}), поэтому пакет можно безопасно
+     * повторить.
+     *
+     * @param change изменяющее действие, включая запись изменения
+     */
+    private void mutate(Consumer<UndoLog> change) {
+        guard.write(() -> {
+            UndoLog undo = new UndoLog();
+            long savedNextId = nextId.get();
+            long savedNextHistoryId = nextHistoryId.get();
+            try {
+                change.accept(undo);
+            } catch (RuntimeException e) {
+                undo.rollback();
+                nextId.set(savedNextId);
+                nextHistoryId.set(savedNextHistoryId);
+                throw e;
+            }
+        });
     }
     
     /**
@@ -81,7 +574,7 @@ public class JsonCardDao implements CardDao {
      */
     private void saveData() {
         try {
-            mapper.writeValue(file, cards);
+            writeSnapshot(file, cards.list());
         } catch (IOException e) {
             throw new RuntimeException("Ошибка при сохранении данных в JSON", e);
         }
@@ -92,7 +585,7 @@ public class JsonCardDao implements CardDao {
      */
     private void saveHistory() {
         try {
-            mapper.writeValue(historyFile, history);
+            writeSnapshot(historyFile, history.list());
         } catch (IOException e) {
             throw new RuntimeException("Ошибка при сохранении истории в JSON", e);
         }
@@ -105,16 +598,13 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public void saveCard(Card card) {
-        card.setId(nextId.getAndIncrement());
-        cards.add(card);
-        saveData();
-        CardHistory historyRecord = new CardHistory();
-        historyRecord.setCardId(card.getId());
-        historyRecord.setCategory(card.getCategory());
-        historyRecord.setCashbackPercentage(card.getCashback());
-        historyRecord.setChangeDate(card.getCategoryChangeDate());
-        historyRecord.setRecordDate(java.time.LocalDateTime.now());
-        saveHistory(historyRecord);
+        mutate(undo -> {
+            assignCardId(card, undo);
+            putCard(card, undo);
+            CardHistory historyRecord = createHistoryRecord(card);
+            addHistory(historyRecord, undo);
+            persist(List.of(JournalRecord.saveCard(card), JournalRecord.saveHistory(historyRecord)), true, true);
+        });
     }
     
     /**
@@ -125,33 +615,92 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public void updateCard(Card card) {
+        mutate(undo -> {
+            List<JournalRecord> records = new ArrayList<>(2);
+            applyUpdate(card, records, undo);
+            persist(records, true, records.size() > 1);
+        });
+    }
+    
+    /**
+     * Применяет обновление карты к данным в памяти и добавляет описание изменения в список записей журнала.
+     *
+     * @param card карта с обновленными данными
+     * @param records список записей журнала для дополнения
+     * @param undo журнал отмены изменения
+     */
+    private void applyUpdate(Card card, List<JournalRecord> records, UndoLog undo) {
         Optional<Card> oldCardOpt = getCardById(card.getId());
         if (oldCardOpt.isPresent()) {
             Card old = oldCardOpt.get();
             if (!old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback()) {
-                CardHistory historyRecord = new CardHistory();
-                historyRecord.setCardId(card.getId());
-                historyRecord.setCategory(card.getCategory());
-                historyRecord.setCashbackPercentage(card.getCashback());
-                historyRecord.setChangeDate(card.getCategoryChangeDate());
-                historyRecord.setRecordDate(java.time.LocalDateTime.now());
-                saveHistory(historyRecord);
+                CardHistory historyRecord = createHistoryRecord(card);
+                addHistory(historyRecord, undo);
+                records.add(JournalRecord.saveHistory(historyRecord));
             }
         }
-        cards.removeIf(c -> c.getId().equals(card.getId()));
-        cards.add(card);
-        saveData();
+        putCard(card, undo);
+        records.add(JournalRecord.updateCard(card));
+    }
+    
+    /**
+     * Сохраняет несколько новых карт и создает для них записи в истории.
+     * Файлы карт и истории перезаписываются (или журнал дописывается) один раз на весь пакет;
+     * если запись не удалась, ни одна карта пакета не остается сохраненной.
+     *
+     * @param newCards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> newCards) {
+        mutate(undo -> {
+            if (newCards.isEmpty()) {
+                return;
+            }
+            List<JournalRecord> records = new ArrayList<>(newCards.size() * 2);
+            for (Card card : newCards) {
+                assignCardId(card, undo);
+                putCard(card, undo);
+                CardHistory historyRecord = createHistoryRecord(card);
+                addHistory(historyRecord, undo);
+                records.add(JournalRecord.saveCard(card));
+                records.add(JournalRecord.saveHistory(historyRecord));
+            }
+            persist(records, true, true);
+        });
+    }
+    
+    /**
+     * Обновляет несколько карт.
+     * Файлы карт и истории перезаписываются (или журнал дописывается) один раз на весь пакет;
+     * если запись не удалась, ни одно обновление пакета не остается примененным.
+     *
+     * @param updatedCards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> updatedCards) {
+        mutate(undo -> {
+            if (updatedCards.isEmpty()) {
+                return;
+            }
+            List<JournalRecord> records = new ArrayList<>(updatedCards.size() * 2);
+            for (Card card : updatedCards) {
+                applyUpdate(card, records, undo);
+            }
+            persist(records, true, records.size() > updatedCards.size());
+        });
     }
     
     /**
-     * Удаляет карту из хранилища.
+     * Удаляет карту из хранилища; если удаление не удалось записать, карта остается на прежнем месте.
      *
      * @param id идентификатор карты для удаления
      */
     @Override
     public void deleteCard(Long id) {
-        cards.removeIf(card -> card.getId().equals(id));
-        saveData();
+        mutate(undo -> {
+            cards.remove(id, undo);
+            persist(List.of(JournalRecord.deleteCard(id)), true, false);
+        });
     }
     
     /**
@@ -161,20 +710,18 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public List<Card> getAllCards() {
-        return new ArrayList<>(cards);
+        return guard.read(() -> cards.list());
     }
     
     /**
-     * Находит карту по её идентификатору.
+     * Находит карту по её идентификатору через индекс за O(1).
      *
      * @param id идентификатор карты
      * @return Optional, содержащий карту, если она найдена
      */
     @Override
     public Optional<Card> getCardById(Long id) {
-        return cards.stream()
-                .filter(card -> card.getId().equals(id))
-                .findFirst();
+        return guard.read(() -> cards.get(id));
     }
     
     /**
@@ -185,9 +732,18 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public List<Card> findByCategory(String category) {
-        return cards.stream()
-                .filter(card -> card.getCategory().equalsIgnoreCase(category))
-                .toList();
+        return guard.read(() -> cards.findByCategory(category));
+    }
+    
+    /**
+     * Находит активную карту с максимальным кэшбэком в категории через индекс категорий.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        return guard.read(() -> cards.findBestForCategory(category));
     }
     
     /**
@@ -198,9 +754,37 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public List<Card> findByExpiringCategory(LocalDate date) {
-        return cards.stream()
-                .filter(card -> card.getCategoryChangeDate().isBefore(date) && card.isActive())
-                .toList();
+        return guard.read(() -> cards.findExpiring(date));
+    }
+    
+    /**
+     * Переводит истекающие карты в статус EXPIRED с одной перезаписью файла карт
+     * (или одним дописыванием журнала).
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        List<Card> expired = new ArrayList<>();
+        mutate(undo -> {
+            List<JournalRecord> records = new ArrayList<>();
+            for (Card card : cards.findExpiring(date)) {
+                Card.CardStatus previousStatus = card.getStatus();
+                card.setStatus(Card.CardStatus.EXPIRED);
+                undo.add(() -> {
+                    card.setStatus(previousStatus);
+                    cards.put(card);
+                });
+                cards.put(card);
+                expired.add(card);
+                records.add(JournalRecord.updateCard(card));
+            }
+            if (!expired.isEmpty()) {
+                persist(records, true, false);
+            }
+        });
+        return expired;
     }
     
     /**
@@ -210,20 +794,95 @@ public class JsonCardDao implements CardDao {
      */
     @Override
     public void saveHistory(CardHistory history) {
-        this.history.add(history);
-        saveHistory();
+        mutate(undo -> {
+            ensureHistoryLoaded();
+            assignHistoryId(history, undo);
+            addHistory(history, undo);
+            persist(List.of(JournalRecord.saveHistory(history)), false, true);
+        });
     }
     
     /**
-     * Получает историю изменений для конкретной карты.
+     * Сохраняет несколько записей истории с одной перезаписью файла истории;
+     * если запись не удалась, ни одна запись пакета не остается сохраненной.
+     *
+     * @param records записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> records) {
+        mutate(undo -> {
+            if (records.isEmpty()) {
+                return;
+            }
+            ensureHistoryLoaded();
+            List<JournalRecord> journalRecords = new ArrayList<>(records.size());
+            for (CardHistory record : records) {
+                assignHistoryId(record, undo);
+                addHistory(record, undo);
+                journalRecords.add(JournalRecord.saveHistory(record));
+            }
+            persist(journalRecords, false, true);
+        });
+    }
+    
+    /**
+     * Получает историю изменений для конкретной карты из индекса по карте,
+     * отсортированную по дате изменения по убыванию.
      *
      * @param cardId идентификатор карты
      * @return список записей истории изменений
      */
     @Override
     public List<CardHistory> findHistoryByCardId(Long cardId) {
-        return history.stream()
-                .filter(h -> h.getCardId().equals(cardId))
-                .toList();
+        if (history == null) {
+            guard.write(this::ensureHistoryLoaded);
+        }
+        return guard.read(() -> history.findByCardId(cardId));
+    }
+    
+    /**
+     * Записывает в файлы изменения, ожидающие групповой фиксации.
+     * В режиме журнала все изменения уже записаны в журнал; если фоновое уплотнение
+     * завершилось ошибкой, оно повторяется, и при повторной ошибке выбрасывается исключение.
+     */
+    @Override
+    public void flush() {
+        if (commitWriter != null) {
+            commitWriter.flush();
+        }
+        if (journal != null && compactionFailure != null) {
+            guard.write(this::retryFailedCompaction);
+        }
+    }
+    
+    /**
+     * Закрывает хранилище. При групповой фиксации записывает ожидающие изменения,
+     * в режиме журнала дожидается завершения фонового уплотнения, повторяет его,
+     * если оно завершилось ошибкой, и закрывает файл журнала; в остальных случаях
+     * данные уже сохранены при каждом изменении.
+     */
+    @Override
+    public void close() {
+        if (commitWriter != null) {
+            commitWriter.close();
+        }
+        guard.write(() -> {
+            if (journal == null) {
+                return;
+            }
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(30, TimeUnit.SECONDS);
+                retryFailedCompaction();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new RuntimeException("Ошибка при закрытии журнала JSON", e);
+                }
+            }
+        });
     }
 } 
\ No newline at end of file
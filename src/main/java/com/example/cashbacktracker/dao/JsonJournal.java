@@ -0,0 +1,230 @@
+package com.example.cashbacktracker.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений в формате JSON Lines, дополняемый только в конец.
+ * Перед уплотнением текущий журнал переименовывается в сегмент, а новые записи
+ * продолжают писаться в свежий журнал. Сегмент удаляется после того, как его
+ * содержимое попало в снимок данных.
+ * <p>
+ * Записи дописываются через {@link FileChannel} и сбрасываются на диск
+ * в соответствии с {@link FsyncPolicy} до возврата из {@link #append(List)}.
+ */
+class JsonJournal implements AutoCloseable {
+    private final Path journalPath;
+    private final Path segmentPath;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final FsyncPolicy fsyncPolicy;
+    private FileChannel channel;
+    private int recordCount;
+
+    /**
+     * Создает журнал рядом с файлом снимка.
+     *
+     * @param snapshotPath путь к файлу снимка карт
+     * @param mapper настроенный ObjectMapper для сериализации записей
+     * @param fsyncPolicy политика сброса дописанных записей на диск
+     */
+    JsonJournal(Path snapshotPath, ObjectMapper mapper, FsyncPolicy fsyncPolicy) {
+        String baseName = snapshotPath.getFileName().toString().replaceFirst("\\.json$", "");
+        this.journalPath = snapshotPath.resolveSibling(baseName + ".journal.jsonl");
+        this.segmentPath = snapshotPath.resolveSibling(baseName + ".journal.compacting.jsonl");
+        this.writer = mapper.writerFor(JournalRecord.class);
+        this.reader = mapper.readerFor(JournalRecord.class);
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Дописывает записи в конец журнала одной операцией записи
+     * и сбрасывает их на диск согласно политике. Если запись не удалась,
+     * журнал по возможности усекается до прежнего размера, чтобы повторная
+     * запись тех же изменений не оказалась после оборванной строки.
+     *
+     * @param records записи для добавления
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void append(List<JournalRecord> records) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * records.size());
+        for (JournalRecord record : records) {
+            writer.writeValue(buffer, record);
+            buffer.write('\n');
+        }
+        if (channel == null) {
+            openChannel();
+        }
+        long previousSize = channel.size();
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(previousSize);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        recordCount += records.size();
+    }
+
+    /**
+     * Открывает файл журнала для дописывания. Если файл создается заново и политика
+     * требует сброса каталога, сбрасывает на диск и запись каталога.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void openChannel() throws IOException {
+        boolean created = !Files.exists(journalPath);
+        channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (created && fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            AtomicFileWriter.syncDirectory(journalPath.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Возвращает количество записей в текущем журнале.
+     *
+     * @return количество записей, еще не перенесенных в сегмент уплотнения
+     */
+    int size() {
+        return recordCount;
+    }
+
+    /**
+     * Проверяет, остался ли сегмент от незавершенного уплотнения.
+     *
+     * @return true если сегмент существует
+     */
+    boolean hasSegment() {
+        return Files.exists(segmentPath);
+    }
+
+    /**
+     * Последовательно передает записи сегмента и текущего журнала обработчику.
+     * Оборванная последняя строка журнала (например, после сбоя при записи) пропускается.
+     *
+     * @param consumer обработчик записей
+     * @throws IOException если произошла ошибка ввода-вывода или журнал поврежден
+     */
+    void replay(Consumer<JournalRecord> consumer) throws IOException {
+        replayFile(segmentPath, consumer);
+        recordCount = replayFile(journalPath, consumer);
+    }
+
+    /**
+     * Передает обработчику записи одного файла журнала.
+     *
+     * @param path путь к файлу журнала
+     * @param consumer обработчик записей
+     * @return количество прочитанных записей
+     * @throws IOException если произошла ошибка ввода-вывода или журнал поврежден
+     */
+    private int replayFile(Path path, Consumer<JournalRecord> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while (line != null) {
+                String next = in.readLine();
+                if (!line.isBlank()) {
+                    try {
+                        consumer.accept(reader.readValue(line));
+                        count++;
+                    } catch (JsonProcessingException e) {
+                        if (next != null) {
+                            throw e;
+                        }
+                    }
+                }
+                line = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Переносит текущий журнал в сегмент уплотнения и начинает новый журнал.
+     * Сегмент предыдущего уплотнения, который еще не попал в снимок, не заменяется.
+     *
+     * @throws IOException если сегмент уже существует или произошла ошибка ввода-вывода
+     */
+    void rotate() throws IOException {
+        if (Files.exists(segmentPath)) {
+            throw new IOException("Сегмент предыдущего уплотнения еще не перенесен в снимок: " + segmentPath);
+        }
+        closeOutput();
+        if (Files.exists(journalPath)) {
+            Files.move(journalPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Удаляет сегмент, содержимое которого уже попало в снимок.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void deleteSegment() throws IOException {
+        Files.deleteIfExists(segmentPath);
+    }
+
+    /**
+     * Удаляет сегмент и текущий журнал, если их содержимое уже попало в снимок.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void clear() throws IOException {
+        closeOutput();
+        Files.deleteIfExists(segmentPath);
+        Files.deleteIfExists(journalPath);
+        recordCount = 0;
+    }
+
+    /**
+     * Закрывает файл журнала, открытый для дописывания.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void closeOutput() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Закрывает журнал.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    @Override
+    public void close() throws IOException {
+        closeOutput();
+    }
+}
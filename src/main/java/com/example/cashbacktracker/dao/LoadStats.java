@@ -0,0 +1,34 @@
+package com.example.cashbacktracker.dao;
+
+/**
+ * Статистика загрузки файла хранилища.
+ *
+ * @param records количество прочитанных записей
+ * @param bytes размер прочитанного файла в байтах
+ * @param nanos время загрузки в наносекундах
+ */
+public record LoadStats(long records, long bytes, long nanos) {
+
+    /**
+     * Статистика для файла, который еще не загружался или отсутствует.
+     */
+    public static final LoadStats EMPTY = new LoadStats(0, 0, 0);
+
+    /**
+     * Возвращает скорость загрузки в записях в секунду.
+     *
+     * @return количество записей в секунду; 0 если время загрузки неизвестно
+     */
+    public double recordsPerSecond() {
+        return nanos == 0 ? 0 : records * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Возвращает скорость загрузки в мегабайтах в секунду.
+     *
+     * @return количество мегабайт в секунду; 0 если время загрузки неизвестно
+     */
+    public double megabytesPerSecond() {
+        return nanos == 0 ? 0 : bytes * 1_000_000_000.0 / nanos / (1024 * 1024);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.cashbacktracker.dao;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица с ключами типа {@code long} без упаковки ключей в объекты.
+ * Использует открытую адресацию с линейным пробированием и удаление
+ * со сдвигом следующих элементов, поэтому не накапливает удаленные ячейки.
+ *
+ * @param <V> тип значения
+ */
+final class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * Создает пустую таблицу.
+     */
+    LongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key ключ
+     * @return значение или null, если ключ отсутствует
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Проверяет наличие ключа.
+     *
+     * @param key ключ
+     * @return true если ключ присутствует
+     */
+    boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Сохраняет значение по ключу.
+     *
+     * @param key ключ
+     * @param value значение
+     * @return предыдущее значение или null, если ключ отсутствовал
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (mask + 1) * 3 / 4) {
+            resize((mask + 1) * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет значение по ключу.
+     *
+     * @param key ключ
+     * @return удаленное значение или null, если ключ отсутствовал
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        values[gap] = null;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Возвращает количество элементов.
+     *
+     * @return количество элементов
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Удаляет все элементы.
+     */
+    void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Передает обработчику все значения в порядке расположения в таблице.
+     *
+     * @param action обработчик значений
+     */
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Находит ячейку с ключом.
+     *
+     * @param key ключ
+     * @return номер ячейки или -1, если ключ отсутствует
+     */
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Вычисляет начальную ячейку для ключа.
+     *
+     * @param key ключ
+     * @return номер ячейки
+     */
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Перестраивает таблицу под новую емкость.
+     *
+     * @param capacity новая емкость (степень двойки)
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Выделяет массивы таблицы.
+     *
+     * @param capacity емкость (степень двойки)
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+}
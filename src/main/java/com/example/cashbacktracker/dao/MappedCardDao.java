@@ -0,0 +1,713 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация CardDao, хранящая карты и историю в файлах записей фиксированной длины,
+ * отображенных в память ({@link MappedRecordFile}). Строки, включая имя статуса карты,
+ * кодируются номерами в общем словаре ({@link StringDictionary}), даты — номером дня
+ * и секундами; поэтому изменение порядка констант статуса не портит существующие файлы.
+ * <p>
+ * Карты, которых немного, дополнительно держатся в памяти в {@link CardTable} с индексами
+ * по категории и сроку действия; обновление и удаление карты переписывает ее запись на месте.
+ * История в памяти в виде объектов не хранится: для каждой карты хранится только массив
+ * номеров записей, упорядоченный по дате изменения по убыванию, и
+ * {@link #findHistoryByCardId(Long)} читает поля этих записей прямо из отображения.
+ * <p>
+ * Записи защищены контрольными суммами, поэтому запись карты, переписанная на месте
+ * не полностью из-за сбоя, обнаруживается при открытии.
+ * Каждое изменение сбрасывается на диск согласно {@link FsyncPolicy}; политика
+ * {@link FsyncPolicy#FILE_AND_DIRECTORY} действует как {@link FsyncPolicy#FILE},
+ * потому что файлы хранилища не переименовываются.
+ */
+public class MappedCardDao implements CardDao {
+    private static final int CARDS_MAGIC = 0x43415244;
+    private static final int HISTORY_MAGIC = 0x48495354;
+
+    private static final int CARD_ID = 0;
+    private static final int CARD_BANK_NAME = 8;
+    private static final int CARD_CARD_NAME = 12;
+    private static final int CARD_CATEGORY = 16;
+    private static final int CARD_CASHBACK = 20;
+    private static final int CARD_CHANGE_DATE = 28;
+    private static final int CARD_STATUS = 36;
+    private static final int CARD_DELETED = 40;
+    private static final int CARD_RECORD_SIZE = 44;
+
+    private static final int HISTORY_ID = 0;
+    private static final int HISTORY_CARD_ID = 8;
+    private static final int HISTORY_CATEGORY = 16;
+    private static final int HISTORY_CASHBACK = 20;
+    private static final int HISTORY_CHANGE_DATE = 28;
+    private static final int HISTORY_RECORD_SECONDS = 36;
+    private static final int HISTORY_RECORD_NANOS = 44;
+    private static final int HISTORY_NULLS = 48;
+    private static final int HISTORY_RECORD_SIZE = 56;
+
+    private static final byte NULL_CARD_ID = 1;
+    private static final byte NULL_CASHBACK = 2;
+    private static final byte NULL_CHANGE_DATE = 4;
+    private static final byte NULL_RECORD_DATE = 8;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final FsyncPolicy fsyncPolicy;
+    private final ReadWriteGuard guard = new ReadWriteGuard();
+    private final StringDictionary strings;
+    private final MappedRecordFile cardRecords;
+    private final MappedRecordFile historyRecords;
+    private CardTable cards = new CardTable();
+    private LongHashMap<Integer> cardSlots = new LongHashMap<>();
+    private LongHashMap<Positions> historyByCardId = new LongHashMap<>();
+    private long nextId = 1;
+    private long nextHistoryId = 1;
+
+    /**
+     * Создает новый экземпляр MappedCardDao со сбросом на диск после каждого изменения.
+     *
+     * @param filePath путь к файлу записей карт; история и словарь строк хранятся рядом
+     */
+    public MappedCardDao(String filePath) {
+        this(filePath, FsyncPolicy.FILE);
+    }
+
+    /**
+     * Создает новый экземпляр MappedCardDao.
+     *
+     * @param filePath путь к файлу записей карт; история и словарь строк хранятся рядом
+     * @param fsyncPolicy политика сброса на диск после каждого изменения
+     */
+    public MappedCardDao(String filePath, FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        Path cardsPath = Path.of(filePath);
+        StringDictionary dictionary = null;
+        MappedRecordFile cardFile = null;
+        try {
+            dictionary = new StringDictionary(cardsPath.resolveSibling("strings.dat"));
+            cardFile = new MappedRecordFile(cardsPath, CARDS_MAGIC, CARD_RECORD_SIZE);
+            this.historyRecords = new MappedRecordFile(cardsPath.resolveSibling("card_history.dat"),
+                    HISTORY_MAGIC, HISTORY_RECORD_SIZE);
+        } catch (IOException e) {
+            closeQuietly(cardFile);
+            closeQuietly(dictionary);
+            throw new RuntimeException("Ошибка при открытии хранилища с отображением в память", e);
+        }
+        this.strings = dictionary;
+        this.cardRecords = cardFile;
+        try {
+            loadCards();
+            indexHistory();
+        } catch (RuntimeException e) {
+            closeQuietly(historyRecords);
+            closeQuietly(cardRecords);
+            closeQuietly(strings);
+            throw e;
+        }
+    }
+
+    /**
+     * Закрывает ресурс, игнорируя ошибки; используется при неудачном открытии хранилища.
+     *
+     * @param resource ресурс или null
+     */
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            // исходная ошибка открытия важнее
+        }
+    }
+
+    /**
+     * Упорядоченный массив номеров записей истории одной карты.
+     */
+    private static final class Positions {
+        private int[] items = new int[4];
+        private int size;
+
+        /**
+         * Вставляет номер записи в указанную позицию.
+         *
+         * @param position позиция в массиве
+         * @param record номер записи
+         */
+        private void insert(int position, int record) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            System.arraycopy(items, position, items, position + 1, size - position);
+            items[position] = record;
+            size++;
+        }
+    }
+
+    /**
+     * Читает карты из файла записей в таблицу карт, пропуская удаленные.
+     */
+    private void loadCards() {
+        for (int index = 0; index < cardRecords.count(); index++) {
+            long id = cardRecords.getLong(index, CARD_ID);
+            nextId = Math.max(nextId, id + 1);
+            if (cardRecords.getByte(index, CARD_DELETED) != 0) {
+                continue;
+            }
+            cards.put(readCard(index));
+            cardSlots.put(id, index);
+        }
+    }
+
+    /**
+     * Перечитывает карты и индекс истории из отображений после отмены неудачного изменения.
+     */
+    private void reload() {
+        cards = new CardTable();
+        cardSlots = new LongHashMap<>();
+        historyByCardId = new LongHashMap<>();
+        nextId = 1;
+        nextHistoryId = 1;
+        loadCards();
+        indexHistory();
+    }
+
+    /**
+     * Строит индекс истории по карте, читая из отображения только идентификаторы и даты.
+     */
+    private void indexHistory() {
+        for (int index = 0; index < historyRecords.count(); index++) {
+            nextHistoryId = Math.max(nextHistoryId, historyRecords.getLong(index, HISTORY_ID) + 1);
+            indexHistoryRecord(index);
+        }
+    }
+
+    /**
+     * Добавляет запись истории в индекс по карте после записей с той же датой изменения.
+     *
+     * @param index номер записи истории
+     */
+    private void indexHistoryRecord(int index) {
+        if ((historyRecords.getByte(index, HISTORY_NULLS) & NULL_CARD_ID) != 0) {
+            return;
+        }
+        long cardId = historyRecords.getLong(index, HISTORY_CARD_ID);
+        Positions positions = historyByCardId.get(cardId);
+        if (positions == null) {
+            positions = new Positions();
+            historyByCardId.put(cardId, positions);
+        }
+        long changeDate = historyRecords.getLong(index, HISTORY_CHANGE_DATE);
+        int low = 0;
+        int high = positions.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (historyRecords.getLong(positions.items[mid], HISTORY_CHANGE_DATE) >= changeDate) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        positions.insert(low, index);
+    }
+
+    /**
+     * Восстанавливает карту из записи.
+     *
+     * @param index номер записи карты
+     * @return карта
+     */
+    private Card readCard(int index) {
+        Card card = new Card();
+        card.setId(cardRecords.getLong(index, CARD_ID));
+        card.setBankName(strings.decode(cardRecords.getInt(index, CARD_BANK_NAME)));
+        card.setCardName(strings.decode(cardRecords.getInt(index, CARD_CARD_NAME)));
+        card.setCategory(strings.decode(cardRecords.getInt(index, CARD_CATEGORY)));
+        card.setCashback(cardRecords.getDouble(index, CARD_CASHBACK));
+        long changeDate = cardRecords.getLong(index, CARD_CHANGE_DATE);
+        card.setCategoryChangeDate(changeDate == NO_DATE ? null : LocalDate.ofEpochDay(changeDate));
+        card.setStatus(decodeStatus(index));
+        return card;
+    }
+
+    /**
+     * Восстанавливает статус карты по имени, хранящемуся в словаре строк.
+     *
+     * @param index номер записи карты
+     * @return статус карты или null
+     * @throws RuntimeException если имя не соответствует ни одному статусу
+     */
+    private Card.CardStatus decodeStatus(int index) {
+        String name = strings.decode(cardRecords.getInt(index, CARD_STATUS));
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Card.CardStatus.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Неизвестный статус карты " + name + " в записи " + index, e);
+        }
+    }
+
+    /**
+     * Записывает карту в новую запись или поверх ее существующей записи.
+     * Строки кодируются до изменения записи, поэтому ошибка словаря не оставляет запись недописанной.
+     *
+     * @param card карта с назначенным идентификатором
+     * @param undo журнал отмены изменения
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void writeCard(Card card, UndoLog undo) throws IOException {
+        int bankName = strings.encode(card.getBankName());
+        int cardName = strings.encode(card.getCardName());
+        int category = strings.encode(card.getCategory());
+        int status = strings.encode(card.getStatus() == null ? null : card.getStatus().name());
+        Integer slot = cardSlots.get(card.getId());
+        if (slot != null) {
+            saveRecord(slot, undo);
+        }
+        int index = slot != null ? slot : cardRecords.append();
+        cardRecords.putLong(index, CARD_ID, card.getId());
+        cardRecords.putInt(index, CARD_BANK_NAME, bankName);
+        cardRecords.putInt(index, CARD_CARD_NAME, cardName);
+        cardRecords.putInt(index, CARD_CATEGORY, category);
+        cardRecords.putDouble(index, CARD_CASHBACK, card.getCashback());
+        LocalDate changeDate = card.getCategoryChangeDate();
+        cardRecords.putLong(index, CARD_CHANGE_DATE, changeDate == null ? NO_DATE : changeDate.toEpochDay());
+        cardRecords.putInt(index, CARD_STATUS, status);
+        cardRecords.putByte(index, CARD_DELETED, (byte) 0);
+        if (slot == null) {
+            cardSlots.put(card.getId(), index);
+        }
+    }
+
+    /**
+     * Запоминает прежнее содержимое записи карты перед ее перезаписью.
+     *
+     * @param slot номер записи карты
+     * @param undo журнал отмены изменения
+     */
+    private void saveRecord(int slot, UndoLog undo) {
+        byte[] previous = cardRecords.getRecord(slot);
+        undo.add(() -> cardRecords.putRecord(slot, previous));
+    }
+
+    /**
+     * Восстанавливает запись истории из отображения.
+     *
+     * @param index номер записи истории
+     * @return запись истории
+     */
+    private CardHistory readHistory(int index) {
+        byte nulls = historyRecords.getByte(index, HISTORY_NULLS);
+        CardHistory record = new CardHistory();
+        record.setId(historyRecords.getLong(index, HISTORY_ID));
+        if ((nulls & NULL_CARD_ID) == 0) {
+            record.setCardId(historyRecords.getLong(index, HISTORY_CARD_ID));
+        }
+        record.setCategory(strings.decode(historyRecords.getInt(index, HISTORY_CATEGORY)));
+        if ((nulls & NULL_CASHBACK) == 0) {
+            record.setCashbackPercentage(historyRecords.getDouble(index, HISTORY_CASHBACK));
+        }
+        if ((nulls & NULL_CHANGE_DATE) == 0) {
+            record.setChangeDate(LocalDate.ofEpochDay(historyRecords.getLong(index, HISTORY_CHANGE_DATE)));
+        }
+        if ((nulls & NULL_RECORD_DATE) == 0) {
+            record.setRecordDate(LocalDateTime.ofEpochSecond(historyRecords.getLong(index, HISTORY_RECORD_SECONDS),
+                    historyRecords.getInt(index, HISTORY_RECORD_NANOS), ZoneOffset.UTC));
+        }
+        return record;
+    }
+
+    /**
+     * Дописывает запись истории в файл и индекс по карте, при необходимости назначая идентификатор.
+     * Отсутствующая дата изменения хранится как наименьшая, поэтому такие записи идут в конце истории карты.
+     *
+     * @param record запись истории
+     * @param undo журнал отмены изменения
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void appendHistory(CardHistory record, UndoLog undo) throws IOException {
+        int category = strings.encode(record.getCategory());
+        if (record.getId() == null) {
+            record.setId(nextHistoryId++);
+            undo.add(() -> record.setId(null));
+        } else {
+            nextHistoryId = Math.max(nextHistoryId, record.getId() + 1);
+        }
+        int index = historyRecords.append();
+        byte nulls = 0;
+        historyRecords.putLong(index, HISTORY_ID, record.getId());
+        if (record.getCardId() == null) {
+            nulls |= NULL_CARD_ID;
+        } else {
+            historyRecords.putLong(index, HISTORY_CARD_ID, record.getCardId());
+        }
+        historyRecords.putInt(index, HISTORY_CATEGORY, category);
+        if (record.getCashbackPercentage() == null) {
+            nulls |= NULL_CASHBACK;
+        } else {
+            historyRecords.putDouble(index, HISTORY_CASHBACK, record.getCashbackPercentage());
+        }
+        if (record.getChangeDate() == null) {
+            nulls |= NULL_CHANGE_DATE;
+            historyRecords.putLong(index, HISTORY_CHANGE_DATE, NO_DATE);
+        } else {
+            historyRecords.putLong(index, HISTORY_CHANGE_DATE, record.getChangeDate().toEpochDay());
+        }
+        if (record.getRecordDate() == null) {
+            nulls |= NULL_RECORD_DATE;
+        } else {
+            historyRecords.putLong(index, HISTORY_RECORD_SECONDS, record.getRecordDate().toEpochSecond(ZoneOffset.UTC));
+            historyRecords.putInt(index, HISTORY_RECORD_NANOS, record.getRecordDate().getNano());
+        }
+        historyRecords.putByte(index, HISTORY_NULLS, nulls);
+        indexHistoryRecord(index);
+    }
+
+    /**
+     * Создает запись истории для текущего состояния карты.
+     *
+     * @param card карта
+     * @return запись истории без идентификатора
+     */
+    private CardHistory createHistoryRecord(Card card) {
+        CardHistory historyRecord = new CardHistory();
+        historyRecord.setCardId(card.getId());
+        historyRecord.setCategory(card.getCategory());
+        historyRecord.setCashbackPercentage(card.getCashback());
+        historyRecord.setChangeDate(card.getCategoryChangeDate());
+        historyRecord.setRecordDate(LocalDateTime.now());
+        return historyRecord;
+    }
+
+    /**
+     * Фиксирует изменение: записывает количество записей в заголовки файлов
+     * и сбрасывает их на диск согласно политике. Словарь сбрасывается раньше записей,
+     * которые ссылаются на его строки, а записи — раньше заголовков
+     * (см. {@link MappedRecordFile#commit(boolean)}).
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void commit() throws IOException {
+        boolean sync = fsyncPolicy != FsyncPolicy.NONE;
+        if (sync) {
+            strings.force();
+        }
+        cardRecords.commit(sync);
+        historyRecords.commit(sync);
+    }
+
+    /**
+     * Сбрасывает словарь и отображения на диск.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void force() throws IOException {
+        strings.force();
+        cardRecords.force();
+        historyRecords.force();
+    }
+
+    /**
+     * Выполняет изменение хранилища с фиксацией в конце.
+     * Если изменение или фиксация не удались, перезаписанные записи восстанавливаются,
+     * добавленные отбрасываются, назначенные объектам идентификаторы возвращаются
+     * (см. {@link UndoLog}), а индексы перечитываются из отображений, поэтому пакет
+     * можно безопасно повторить.
+     *
+     * @param mutation изменяющее действие
+     */
+    private void mutate(Mutation mutation) {
+        guard.write(() -> {
+            UndoLog undo = new UndoLog();
+            int cardCount = cardRecords.count();
+            int historyCount = historyRecords.count();
+            try {
+                mutation.apply(undo);
+                commit();
+            } catch (IOException | RuntimeException e) {
+                undo.rollback();
+                cardRecords.truncate(cardCount);
+                historyRecords.truncate(historyCount);
+                reload();
+                if (e instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new RuntimeException("Ошибка при записи в хранилище с отображением в память", e);
+            }
+        });
+    }
+
+    /**
+     * Изменение хранилища, которое может завершиться ошибкой ввода-вывода.
+     */
+    @FunctionalInterface
+    private interface Mutation {
+        void apply(UndoLog undo) throws IOException;
+    }
+
+    /**
+     * Сохраняет новую карту в хранилище и создает запись в истории.
+     *
+     * @param card карта для сохранения
+     */
+    @Override
+    public void saveCard(Card card) {
+        mutate(undo -> insertCard(card, undo));
+    }
+
+    /**
+     * Назначает карте идентификатор, записывает ее и создает запись в истории.
+     *
+     * @param card карта для сохранения
+     * @param undo журнал отмены изменения
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void insertCard(Card card, UndoLog undo) throws IOException {
+        Long previousId = card.getId();
+        card.setId(nextId++);
+        undo.add(() -> card.setId(previousId));
+        writeCard(card, undo);
+        cards.put(card);
+        appendHistory(createHistoryRecord(card), undo);
+    }
+
+    /**
+     * Обновляет информацию о карте в хранилище.
+     * Если изменилась категория или размер кэшбэка, создает новую запись в истории.
+     *
+     * @param card карта с обновленными данными
+     */
+    @Override
+    public void updateCard(Card card) {
+        mutate(undo -> applyUpdate(card, undo));
+    }
+
+    /**
+     * Переписывает запись карты и при изменении категории или кэшбэка добавляет запись истории.
+     *
+     * @param card карта с обновленными данными
+     * @param undo журнал отмены изменения
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void applyUpdate(Card card, UndoLog undo) throws IOException {
+        Optional<Card> oldCardOpt = cards.get(card.getId());
+        if (oldCardOpt.isPresent()) {
+            Card old = oldCardOpt.get();
+            if (!old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback()) {
+                appendHistory(createHistoryRecord(card), undo);
+            }
+        }
+        writeCard(card, undo);
+        cards.put(card);
+    }
+
+    /**
+     * Сохраняет несколько новых карт и создает для них записи в истории
+     * с одной фиксацией на весь пакет.
+     *
+     * @param newCards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> newCards) {
+        mutate(undo -> {
+            for (Card card : newCards) {
+                insertCard(card, undo);
+            }
+        });
+    }
+
+    /**
+     * Обновляет несколько карт с одной фиксацией на весь пакет.
+     *
+     * @param updatedCards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> updatedCards) {
+        mutate(undo -> {
+            for (Card card : updatedCards) {
+                applyUpdate(card, undo);
+            }
+        });
+    }
+
+    /**
+     * Удаляет карту из хранилища, помечая ее запись удаленной.
+     *
+     * @param id идентификатор карты для удаления
+     */
+    @Override
+    public void deleteCard(Long id) {
+        mutate(undo -> {
+            Integer slot = id == null ? null : cardSlots.remove(id);
+            if (slot != null) {
+                saveRecord(slot, undo);
+                cardRecords.putByte(slot, CARD_DELETED, (byte) 1);
+            }
+            cards.remove(id);
+        });
+    }
+
+    /**
+     * Получает список всех карт из хранилища.
+     *
+     * @return список всех карт
+     */
+    @Override
+    public List<Card> getAllCards() {
+        return guard.read(() -> cards.list());
+    }
+
+    /**
+     * Находит карту по её идентификатору через индекс за O(1).
+     *
+     * @param id идентификатор карты
+     * @return Optional, содержащий карту, если она найдена
+     */
+    @Override
+    public Optional<Card> getCardById(Long id) {
+        return guard.read(() -> cards.get(id));
+    }
+
+    /**
+     * Находит все карты с указанной категорией кэшбэка.
+     *
+     * @param category категория кэшбэка
+     * @return список карт с указанной категорией
+     */
+    @Override
+    public List<Card> findByCategory(String category) {
+        return guard.read(() -> cards.findByCategory(category));
+    }
+
+    /**
+     * Находит активную карту с максимальным кэшбэком в категории через индекс категорий.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        return guard.read(() -> cards.findBestForCategory(category));
+    }
+
+    /**
+     * Находит все карты с истекающей категорией кэшбэка.
+     *
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     */
+    @Override
+    public List<Card> findByExpiringCategory(LocalDate date) {
+        return guard.read(() -> cards.findExpiring(date));
+    }
+
+    /**
+     * Переводит истекающие карты в статус EXPIRED с одной фиксацией.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        List<Card> expired = new ArrayList<>();
+        mutate(undo -> {
+            for (Card card : cards.findExpiring(date)) {
+                card.setStatus(Card.CardStatus.EXPIRED);
+                writeCard(card, undo);
+                cards.put(card);
+                expired.add(card);
+            }
+        });
+        return expired;
+    }
+
+    /**
+     * Сохраняет запись в истории изменений.
+     *
+     * @param history запись истории для сохранения
+     */
+    @Override
+    public void saveHistory(CardHistory history) {
+        mutate(undo -> appendHistory(history, undo));
+    }
+
+    /**
+     * Сохраняет несколько записей истории с одной фиксацией.
+     *
+     * @param records записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> records) {
+        mutate(undo -> {
+            for (CardHistory record : records) {
+                appendHistory(record, undo);
+            }
+        });
+    }
+
+    /**
+     * Получает историю изменений для конкретной карты, читая только ее записи из отображения,
+     * отсортированную по дате изменения по убыванию.
+     *
+     * @param cardId идентификатор карты
+     * @return список записей истории изменений
+     */
+    @Override
+    public List<CardHistory> findHistoryByCardId(Long cardId) {
+        return guard.read(() -> {
+            Positions positions = cardId == null ? null : historyByCardId.get(cardId);
+            if (positions == null) {
+                return List.of();
+            }
+            List<CardHistory> result = new ArrayList<>(positions.size);
+            for (int i = 0; i < positions.size; i++) {
+                result.add(readHistory(positions.items[i]));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Сбрасывает словарь и отображения на диск независимо от политики.
+     */
+    @Override
+    public void flush() {
+        guard.write(() -> {
+            try {
+                force();
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка при сбросе хранилища с отображением в память", e);
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает данные на диск и закрывает файлы хранилища.
+     */
+    @Override
+    public void close() {
+        guard.write(() -> {
+            try {
+                force();
+                strings.close();
+                cardRecords.close();
+                historyRecords.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка при закрытии хранилища с отображением в память", e);
+            }
+        });
+    }
+}
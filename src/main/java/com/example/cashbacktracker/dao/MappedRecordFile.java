@@ -0,0 +1,317 @@
+package com.example.cashbacktracker.dao;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Файл записей фиксированной длины, отображенный в память через {@link FileChannel#map}.
+ * Заголовок файла содержит сигнатуру формата, версию формата, длину записи и количество записей.
+ * Поля записей читаются и пишутся напрямую в отображение без промежуточных объектов;
+ * при нехватке места файл и отображение увеличиваются вдвое.
+ * <p>
+ * За каждой записью хранится ее контрольная сумма CRC32, которая пересчитывается при фиксации
+ * для всех измененных записей и проверяется при открытии: запись, перезапись которой на месте
+ * попала на диск не полностью, обнаруживается, а не читается молча.
+ * {@link MappedByteBuffer#force()} не упорядочивает запись страниц, поэтому при фиксации
+ * со сбросом на диск сначала сбрасываются записи, затем в заголовок пишется количество
+ * и сбрасывается заголовок: количество никогда не опережает данные записей.
+ */
+final class MappedRecordFile implements AutoCloseable {
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final int slotSize;
+    private final BitSet dirty = new BitSet();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    /**
+     * Открывает или создает файл записей.
+     *
+     * @param path путь к файлу
+     * @param magic сигнатура формата файла
+     * @param recordSize длина одной записи в байтах
+     * @throws IOException если произошла ошибка ввода-вывода, файл имеет другой формат
+     *                     или контрольная сумма одной из записей не совпадает
+     */
+    MappedRecordFile(Path path, int magic, int recordSize) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recordSize = recordSize;
+        this.slotSize = recordSize + CHECKSUM_SIZE;
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                map(INITIAL_CAPACITY);
+                buffer.putInt(MAGIC_OFFSET, magic);
+                buffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+                buffer.putInt(RECORD_SIZE_OFFSET, recordSize);
+                buffer.putInt(COUNT_OFFSET, 0);
+                return;
+            }
+            map((int) Math.max(INITIAL_CAPACITY, (size - HEADER_SIZE) / slotSize));
+            if (buffer.getInt(MAGIC_OFFSET) != magic) {
+                throw new IOException("Неизвестный формат файла " + path);
+            }
+            if (buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION || buffer.getInt(RECORD_SIZE_OFFSET) != recordSize) {
+                throw new IOException("Неподдерживаемая версия формата файла " + path);
+            }
+            int storedCount = buffer.getInt(COUNT_OFFSET);
+            if (storedCount < 0 || storedCount > capacity) {
+                throw new IOException("Поврежден заголовок файла " + path);
+            }
+            count = storedCount;
+            for (int index = 0; index < count; index++) {
+                if (buffer.getInt(offset(index, recordSize)) != checksum(index)) {
+                    throw new IOException("Повреждена запись " + index + " файла " + path);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Отображает файл в память с указанной емкостью, при необходимости увеличивая файл.
+     *
+     * @param newCapacity количество записей, помещающихся в отображение
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void map(int newCapacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * slotSize);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Возвращает количество записей в файле.
+     *
+     * @return количество записей
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Резервирует в конце файла место под новую запись.
+     * Запись становится частью файла после вызова {@link #commit()},
+     * поэтому ее поля следует заполнить до фиксации.
+     *
+     * @return номер добавленной записи
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    int append() throws IOException {
+        if (count == capacity) {
+            map(Math.multiplyExact(capacity, 2));
+        }
+        return count++;
+    }
+
+    /**
+     * Фиксирует изменения: пересчитывает контрольные суммы измененных записей и записывает
+     * количество записей в заголовок, делая добавленные записи частью файла.
+     * При сбросе на диск записи сбрасываются до записи количества, а заголовок — после нее.
+     *
+     * @param sync true для сброса на диск
+     */
+    void commit(boolean sync) {
+        if (!dirty.isEmpty()) {
+            int first = dirty.nextSetBit(0);
+            int last = dirty.length() - 1;
+            for (int index = first; index >= 0; index = dirty.nextSetBit(index + 1)) {
+                buffer.putInt(offset(index, recordSize), checksum(index));
+            }
+            dirty.clear();
+            if (sync) {
+                buffer.force(offset(first, 0), (last - first + 1) * slotSize);
+            }
+        }
+        buffer.putInt(COUNT_OFFSET, count);
+        if (sync) {
+            buffer.force(0, HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Отбрасывает записи после указанного количества и записывает новое количество
+     * в заголовок без сброса на диск; используется для отмены неудачного изменения
+     * после восстановления перезаписанных записей.
+     *
+     * @param newCount количество оставляемых записей
+     */
+    void truncate(int newCount) {
+        count = newCount;
+        dirty.clear(newCount, Math.max(newCount, dirty.length()));
+        commit(false);
+    }
+
+    /**
+     * Копирует байты записи вместе с контрольной суммой, чтобы восстановить ее при отмене изменения.
+     *
+     * @param index номер записи
+     * @return копия записи
+     */
+    byte[] getRecord(int index) {
+        byte[] record = new byte[slotSize];
+        buffer.get(offset(index, 0), record);
+        return record;
+    }
+
+    /**
+     * Записывает байты записи целиком.
+     *
+     * @param index номер записи
+     * @param record байты записи, полученные из {@link #getRecord(int)}
+     */
+    void putRecord(int index, byte[] record) {
+        buffer.put(offset(index, 0), record);
+        dirty.set(index);
+    }
+
+    /**
+     * Вычисляет контрольную сумму полей записи.
+     *
+     * @param index номер записи
+     * @return значение CRC32
+     */
+    private int checksum(int index) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset(index, 0), recordSize));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Вычисляет смещение поля записи в отображении.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @return смещение в отображении
+     */
+    private int offset(int index, int field) {
+        return HEADER_SIZE + index * slotSize + field;
+    }
+
+    /**
+     * Читает поле типа long.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @return значение поля
+     */
+    long getLong(int index, int field) {
+        return buffer.getLong(offset(index, field));
+    }
+
+    /**
+     * Читает поле типа int.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @return значение поля
+     */
+    int getInt(int index, int field) {
+        return buffer.getInt(offset(index, field));
+    }
+
+    /**
+     * Читает поле типа double.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @return значение поля
+     */
+    double getDouble(int index, int field) {
+        return buffer.getDouble(offset(index, field));
+    }
+
+    /**
+     * Читает поле типа byte.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @return значение поля
+     */
+    byte getByte(int index, int field) {
+        return buffer.get(offset(index, field));
+    }
+
+    /**
+     * Записывает поле типа long.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @param value значение поля
+     */
+    void putLong(int index, int field, long value) {
+        buffer.putLong(offset(index, field), value);
+        dirty.set(index);
+    }
+
+    /**
+     * Записывает поле типа int.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @param value значение поля
+     */
+    void putInt(int index, int field, int value) {
+        buffer.putInt(offset(index, field), value);
+        dirty.set(index);
+    }
+
+    /**
+     * Записывает поле типа double.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @param value значение поля
+     */
+    void putDouble(int index, int field, double value) {
+        buffer.putDouble(offset(index, field), value);
+        dirty.set(index);
+    }
+
+    /**
+     * Записывает поле типа byte.
+     *
+     * @param index номер записи
+     * @param field смещение поля внутри записи
+     * @param value значение поля
+     */
+    void putByte(int index, int field, byte value) {
+        buffer.put(offset(index, field), value);
+        dirty.set(index);
+    }
+
+    /**
+     * Сбрасывает на диск записи, а затем заголовок.
+     */
+    void force() {
+        buffer.force(HEADER_SIZE, count * slotSize);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Закрывает файл. Отображение освобождается сборщиком мусора.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.cashbacktracker.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Соединение с базой данных SQLite, выданное пулом {@link SqliteConnectionPool}.
+ * Закрытие объекта не закрывает физическое соединение, а возвращает его в пул.
+ * Соединение хранит кэш подготовленных запросов, который живет вместе с ним.
+ */
+class PooledConnection implements AutoCloseable {
+    private final SqliteConnectionPool pool;
+    private final Connection connection;
+    private final int statementCacheSize;
+    private final Map<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Создает обертку над физическим соединением.
+     *
+     * @param pool пул, которому принадлежит соединение
+     * @param connection физическое соединение с базой данных
+     * @param statementCacheSize максимальное количество кэшируемых запросов
+     */
+    PooledConnection(SqliteConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Подготавливает однократно выполняемый запрос в обход кэша.
+     * Запрос необходимо закрыть после использования.
+     *
+     * @param sql текст запроса
+     * @return подготовленный запрос
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Возвращает подготовленный запрос из кэша соединения, подготавливая его при первом обращении.
+     * Запрос принадлежит соединению: закрывать его нельзя, закрывать нужно только ResultSet.
+     *
+     * @param sql текст запроса
+     * @return подготовленный запрос
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    PreparedStatement prepareCached(String sql) throws SQLException {
+        return prepareCached(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Возвращает подготовленный запрос с возвратом сгенерированных ключей из кэша соединения.
+     * Запрос принадлежит соединению: закрывать его нельзя, закрывать нужно только ResultSet.
+     *
+     * @param sql текст запроса
+     * @param autoGeneratedKeys флаг возврата ключей из {@link Statement}
+     * @return подготовленный запрос
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    PreparedStatement prepareCached(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        PreparedStatement pstmt = statementCache.get(key);
+        if (pstmt != null && !pstmt.isClosed()) {
+            pool.recordStatementCacheHit();
+            return pstmt;
+        }
+        pool.recordStatementCacheMiss();
+        pstmt = connection.prepareStatement(sql, autoGeneratedKeys);
+        statementCache.put(key, pstmt);
+        evictOverflow();
+        return pstmt;
+    }
+
+    /**
+     * Закрывает наименее востребованные запросы, если кэш превысил допустимый размер.
+     */
+    private void evictOverflow() {
+        Iterator<PreparedStatement> it = statementCache.values().iterator();
+        while (statementCache.size() > statementCacheSize && it.hasNext()) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Выполняет действие в одной транзакции на этом соединении.
+     * При ошибке все изменения откатываются, после завершения соединение
+     * возвращается в режим автоматической фиксации.
+     *
+     * @param action действие, выполняемое в транзакции
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    void inTransaction(SqlAction action) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            action.execute();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Создает простой SQL-запрос на этом соединении.
+     *
+     * @return объект запроса
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    /**
+     * Проверяет, что физическое соединение еще открыто.
+     *
+     * @return true если соединение можно использовать повторно
+     */
+    boolean isUsable() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Закрывает физическое соединение с базой данных.
+     */
+    void closePhysically() {
+        statementCache.values().forEach(PooledConnection::closeQuietly);
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // соединение уже недоступно, повторно закрывать нечего
+        }
+    }
+
+    /**
+     * Закрывает запрос, игнорируя ошибки.
+     *
+     * @param statement запрос для закрытия
+     */
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // запрос больше не используется
+        }
+    }
+
+    /**
+     * Действие над базой данных, выполняемое в транзакции.
+     */
+    @FunctionalInterface
+    interface SqlAction {
+        /**
+         * Выполняет действие.
+         *
+         * @throws SQLException если произошла ошибка при работе с базой данных
+         */
+        void execute() throws SQLException;
+    }
+
+    /**
+     * Возвращает соединение в пул.
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+}
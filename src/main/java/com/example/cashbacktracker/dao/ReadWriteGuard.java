@@ -0,0 +1,60 @@
+package com.example.cashbacktracker.dao;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Блокировка чтения-записи для хранилищ, держащих данные в памяти.
+ * Чтения выполняются параллельно и не блокируют друг друга, изменения
+ * выполняются по одному и исключают чтения. Блокировка повторно входима:
+ * внутри изменения можно вызывать и читающие, и изменяющие методы.
+ */
+final class ReadWriteGuard {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Выполняет чтение под разделяемой блокировкой.
+     *
+     * @param action читающее действие
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет изменение под исключающей блокировкой.
+     *
+     * @param action изменяющее действие
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет изменение без результата под исключающей блокировкой.
+     *
+     * @param action изменяющее действие
+     */
+    void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.cashbacktracker.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.time.Duration;
+
+/**
+ * Реализация CardDao для хранения данных в двоичном формате Smile.
+ * Smile — двоичное представление модели данных JSON, поэтому хранилище
+ * использует те же индексы в памяти, групповую фиксацию и атомарную запись,
+ * что и {@link JsonCardDao}, но файлы меньше и разбираются быстрее.
+ * Журнал изменений JSON Lines в этом формате не используется.
+ */
+public class SmileCardDao extends JsonCardDao {
+    private static final String HISTORY_FILE_NAME = "card_history.sml";
+
+    /**
+     * Создает новый экземпляр SmileCardDao, перезаписывающий файлы при каждом изменении.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     */
+    public SmileCardDao(String filePath) {
+        this(filePath, null, 0, FsyncPolicy.FILE);
+    }
+
+    /**
+     * Создает новый экземпляр SmileCardDao с групповой фиксацией изменений.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи; null для записи при каждом изменении
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     * @param fsyncPolicy политика сброса на диск при перезаписи файлов
+     */
+    public SmileCardDao(String filePath, Duration flushInterval, int flushBatchSize, FsyncPolicy fsyncPolicy) {
+        super(filePath, HISTORY_FILE_NAME, createMapper(), false, flushInterval, flushBatchSize, fsyncPolicy);
+    }
+
+    /**
+     * Создает ObjectMapper для формата Smile.
+     *
+     * @return настроенный SmileMapper
+     */
+    private static ObjectMapper createMapper() {
+        SmileMapper mapper = new SmileMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
+    }
+}
@@ -12,30 +12,10 @@ import java.util.Optional;
 /**
  * Реализация CardDao для хранения данных в SQLite базе данных.
  * Использует JDBC для работы с базой данных.
+ * Даты хранятся целыми числами (см. {@link SqliteDateCodec}), поэтому сравнения
+ * по датам выполняются по индексам без разбора строк.
  */
 public class SqliteCardDao implements CardDao {
-    private static final String CREATE_TABLE_SQL = """
-            CREATE TABLE IF NOT EXISTS cards (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                bank_name TEXT NOT NULL,
-                card_name TEXT NOT NULL,
-                category TEXT NOT NULL,
-                cashback REAL NOT NULL,
-                category_change_date TEXT NOT NULL,
-                is_active INTEGER NOT NULL
-            )
-            """;
-    private static final String CREATE_HISTORY_TABLE_SQL = """
-            CREATE TABLE IF NOT EXISTS card_history (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                card_id INTEGER NOT NULL,
-                category TEXT NOT NULL,
-                cashback_percentage REAL NOT NULL,
-                change_date TEXT NOT NULL,
-                record_date TEXT NOT NULL,
-                FOREIGN KEY (card_id) REFERENCES cards(id)
-            )
-            """;
     private static final String INSERT_SQL = """
             INSERT INTO cards (bank_name, card_name, category, cashback, category_change_date, is_active)
             VALUES (?, ?, ?, ?, ?, ?)
@@ -48,27 +28,49 @@ public class SqliteCardDao implements CardDao {
     private static final String DELETE_SQL = "DELETE FROM cards WHERE id = ?";
     private static final String SELECT_ALL_SQL = "SELECT * FROM cards";
     private static final String SELECT_BY_ID_SQL = "SELECT * FROM cards WHERE id = ?";
+    private static final String INSERT_HISTORY_SQL = """
+            INSERT INTO card_history (card_id, category, cashback_percentage, change_date, record_date)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final String SELECT_HISTORY_BY_CARD_SQL =
+            "SELECT * FROM card_history WHERE card_id = ? ORDER BY change_date DESC";
+    private static final String SELECT_BY_CATEGORY_SQL = "SELECT * FROM cards WHERE category = ?";
+    private static final String SELECT_BEST_BY_CATEGORY_SQL =
+            "SELECT * FROM cards WHERE category = ? AND is_active = 1 ORDER BY cashback DESC, id LIMIT 1";
+    private static final String SELECT_EXPIRING_SQL =
+            "SELECT * FROM cards WHERE category_change_date <= ? AND is_active = 1";
+    private static final String EXPIRE_SQL =
+            "UPDATE cards SET is_active = 0 WHERE category_change_date <= ? AND is_active = 1";
+    private static final int POOL_SIZE = 4;
 
-    private final String dbUrl;
+    private final SqliteConnectionPool pool;
     
     /**
-     * Создает новый экземпляр SqliteCardDao.
+     * Создает новый экземпляр SqliteCardDao с профилем {@link SqlitePragmaProfile#DURABLE}.
      *
      * @param dbPath путь к файлу базы данных SQLite
      */
     public SqliteCardDao(String dbPath) {
-        this.dbUrl = "jdbc:sqlite:" + dbPath;
+        this(dbPath, SqlitePragmaProfile.DURABLE);
+    }
+    
+    /**
+     * Создает новый экземпляр SqliteCardDao с указанным профилем PRAGMA.
+     *
+     * @param dbPath путь к файлу базы данных SQLite
+     * @param pragmaProfile параметры PRAGMA, применяемые к каждому соединению
+     */
+    public SqliteCardDao(String dbPath, SqlitePragmaProfile pragmaProfile) {
+        this.pool = new SqliteConnectionPool("jdbc:sqlite:" + dbPath, POOL_SIZE, pragmaProfile);
         initializeDatabase();
     }
     
     /**
-     * Инициализирует базу данных, создавая необходимые таблицы.
+     * Инициализирует базу данных, обновляя схему до актуальной версии.
      */
     private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(CREATE_TABLE_SQL);
-            stmt.execute(CREATE_HISTORY_TABLE_SQL);
+        try (PooledConnection conn = pool.acquire()) {
+            SqliteSchemaMigrator.migrate(conn);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка инициализации базы данных", e);
         }
@@ -76,33 +78,17 @@ public class SqliteCardDao implements CardDao {
     
     /**
      * Сохраняет новую карту в базу данных и создает запись в истории.
+     * Карта и запись истории фиксируются одной транзакцией.
      *
      * @param card карта для сохранения
      */
     @Override
     public void saveCard(Card card) {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, card.getBankName());
-            pstmt.setString(2, card.getCardName());
-            pstmt.setString(3, card.getCategory());
-            pstmt.setDouble(4, card.getCashback());
-            pstmt.setString(5, card.getCategoryChangeDate().toString());
-            pstmt.setInt(6, card.isActive() ? 1 : 0);
-            pstmt.executeUpdate();
-
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    card.setId(generatedKeys.getLong(1));
-                    CardHistory history = new CardHistory();
-                    history.setCardId(card.getId());
-                    history.setCategory(card.getCategory());
-                    history.setCashbackPercentage(card.getCashback());
-                    history.setChangeDate(card.getCategoryChangeDate());
-                    history.setRecordDate(LocalDateTime.now());
-                    saveHistory(history);
-                }
-            }
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> {
+                insertCard(conn, card);
+                insertHistory(conn, createHistoryRecord(card));
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка сохранения карты", e);
         }
@@ -111,42 +97,161 @@ public class SqliteCardDao implements CardDao {
     /**
      * Обновляет информацию о карте в базе данных.
      * Если изменилась категория или размер кэшбэка, создает новую запись в истории.
+     * Чтение старой версии, запись истории и обновление карты выполняются одной транзакцией.
      *
      * @param card карта с обновленными данными
      */
     @Override
     public void updateCard(Card card) {
-        try (Connection conn = DriverManager.getConnection(dbUrl)) {
-            Optional<Card> oldCard = getCardById(card.getId());
-            if (oldCard.isPresent()) {
-                Card old = oldCard.get();
-                if (!old.getCategory().equals(card.getCategory()) || 
-                    old.getCashback() != card.getCashback()) {
-                    CardHistory history = new CardHistory();
-                    history.setCardId(card.getId());
-                    history.setCategory(card.getCategory());
-                    history.setCashbackPercentage(card.getCashback());
-                    history.setChangeDate(card.getCategoryChangeDate());
-                    history.setRecordDate(LocalDateTime.now());
-                    saveHistory(history);
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> {
+                Optional<Card> oldCard = findCardById(conn, card.getId());
+                if (oldCard.isPresent() && isCashbackChanged(oldCard.get(), card)) {
+                    insertHistory(conn, createHistoryRecord(card));
                 }
-            }
-
-            try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
-                pstmt.setString(1, card.getBankName());
-                pstmt.setString(2, card.getCardName());
-                pstmt.setString(3, card.getCategory());
-                pstmt.setDouble(4, card.getCashback());
-                pstmt.setString(5, card.getCategoryChangeDate().toString());
-                pstmt.setInt(6, card.isActive() ? 1 : 0);
-                pstmt.setLong(7, card.getId());
-                pstmt.executeUpdate();
-            }
+                writeCard(conn, card);
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка обновления карты", e);
         }
     }
     
+    /**
+     * Сохраняет несколько новых карт одной транзакцией.
+     * Записи истории для новых карт добавляются пакетом.
+     *
+     * @param cards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> cards) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> {
+                List<CardHistory> history = new ArrayList<>(cards.size());
+                for (Card card : cards) {
+                    insertCard(conn, card);
+                    history.add(createHistoryRecord(card));
+                }
+                insertHistoryBatch(conn, history);
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка пакетного сохранения карт", e);
+        }
+    }
+    
+    /**
+     * Обновляет несколько карт одной транзакцией.
+     * Обновления карт и новые записи истории выполняются пакетами.
+     *
+     * @param cards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> cards) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> {
+                List<CardHistory> history = new ArrayList<>();
+                for (Card card : cards) {
+                    Optional<Card> oldCard = findCardById(conn, card.getId());
+                    if (oldCard.isPresent() && isCashbackChanged(oldCard.get(), card)) {
+                        history.add(createHistoryRecord(card));
+                    }
+                }
+                insertHistoryBatch(conn, history);
+                PreparedStatement pstmt = conn.prepareCached(UPDATE_SQL);
+                for (Card card : cards) {
+                    bindCard(pstmt, card);
+                    pstmt.setLong(7, card.getId());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка пакетного обновления карт", e);
+        }
+    }
+    
+    /**
+     * Добавляет карту в базу данных и присваивает ей сгенерированный идентификатор.
+     *
+     * @param conn соединение с базой данных
+     * @param card карта для добавления
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void insertCard(PooledConnection conn, Card card) throws SQLException {
+        PreparedStatement pstmt = conn.prepareCached(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+        bindCard(pstmt, card);
+        pstmt.executeUpdate();
+
+        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+            if (!generatedKeys.next()) {
+                throw new SQLException("База данных не вернула идентификатор новой карты");
+            }
+            card.setId(generatedKeys.getLong(1));
+        }
+    }
+    
+    /**
+     * Записывает данные карты в существующую строку базы данных.
+     *
+     * @param conn соединение с базой данных
+     * @param card карта с обновленными данными
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void writeCard(PooledConnection conn, Card card) throws SQLException {
+        PreparedStatement pstmt = conn.prepareCached(UPDATE_SQL);
+        bindCard(pstmt, card);
+        pstmt.setLong(7, card.getId());
+        pstmt.executeUpdate();
+    }
+    
+    /**
+     * Устанавливает данные карты в параметры 1–6 запроса вставки или обновления.
+     *
+     * @param pstmt подготовленный запрос
+     * @param card карта
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void bindCard(PreparedStatement pstmt, Card card) throws SQLException {
+        pstmt.setString(1, card.getBankName());
+        pstmt.setString(2, card.getCardName());
+        pstmt.setString(3, card.getCategory());
+        pstmt.setDouble(4, card.getCashback());
+        pstmt.setLong(5, SqliteDateCodec.encodeDate(card.getCategoryChangeDate()));
+        pstmt.setInt(6, card.isActive() ? 1 : 0);
+    }
+    
+    /**
+     * Проверяет, изменились ли категория или размер кэшбэка карты.
+     *
+     * @param old сохраненная версия карты
+     * @param card новая версия карты
+     * @return true если изменение нужно записать в историю
+     */
+    private boolean isCashbackChanged(Card old, Card card) {
+        return !old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback();
+    }
+    
+    /**
+     * Создает запись истории для текущего состояния карты.
+     *
+     * @param card карта
+     * @return запись истории
+     */
+    private CardHistory createHistoryRecord(Card card) {
+        CardHistory history = new CardHistory();
+        history.setCardId(card.getId());
+        history.setCategory(card.getCategory());
+        history.setCashbackPercentage(card.getCashback());
+        history.setChangeDate(card.getCategoryChangeDate());
+        history.setRecordDate(LocalDateTime.now());
+        return history;
+    }
+    
     /**
      * Удаляет карту из базы данных.
      *
@@ -154,8 +259,8 @@ public class SqliteCardDao implements CardDao {
      */
     @Override
     public void deleteCard(Long id) {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepareCached(DELETE_SQL);
             pstmt.setLong(1, id);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -171,9 +276,8 @@ public class SqliteCardDao implements CardDao {
     @Override
     public List<Card> getAllCards() {
         List<Card> cards = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SELECT_ALL_SQL)) {
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepareCached(SELECT_ALL_SQL).executeQuery()) {
             while (rs.next()) {
                 cards.add(extractCardFromResultSet(rs));
             }
@@ -191,17 +295,29 @@ public class SqliteCardDao implements CardDao {
      */
     @Override
     public Optional<Card> getCardById(Long id) {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_ID_SQL)) {
-            pstmt.setLong(1, id);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(extractCardFromResultSet(rs));
-                }
-            }
+        try (PooledConnection conn = pool.acquire()) {
+            return findCardById(conn, id);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка получения карты по ID", e);
         }
+    }
+
+    /**
+     * Находит карту по её идентификатору на переданном соединении.
+     *
+     * @param conn соединение с базой данных
+     * @param id идентификатор карты
+     * @return Optional, содержащий карту, если она найдена
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private Optional<Card> findCardById(PooledConnection conn, Long id) throws SQLException {
+        PreparedStatement pstmt = conn.prepareCached(SELECT_BY_ID_SQL);
+        pstmt.setLong(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return Optional.of(extractCardFromResultSet(rs));
+            }
+        }
         return Optional.empty();
     }
     
@@ -212,25 +328,76 @@ public class SqliteCardDao implements CardDao {
      */
     @Override
     public void saveHistory(CardHistory history) {
-        String sql = """
-            INSERT INTO card_history (card_id, category, cashback_percentage, change_date, record_date)
-            VALUES (?, ?, ?, ?, ?)
-        """;
-        
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, history.getCardId());
-            pstmt.setString(2, history.getCategory());
-            pstmt.setDouble(3, history.getCashbackPercentage());
-            pstmt.setString(4, history.getChangeDate().toString());
-            pstmt.setString(5, history.getRecordDate().toString());
-            
-            pstmt.executeUpdate();
+        try (PooledConnection conn = pool.acquire()) {
+            insertHistory(conn, history);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка при сохранении истории", e);
         }
     }
+
+    /**
+     * Сохраняет несколько записей истории одной транзакцией.
+     *
+     * @param history записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> insertHistoryBatch(conn, history));
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка при пакетном сохранении истории", e);
+        }
+    }
+
+    /**
+     * Сохраняет запись в истории изменений на переданном соединении.
+     *
+     * @param conn соединение с базой данных
+     * @param history запись истории для сохранения
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void insertHistory(PooledConnection conn, CardHistory history) throws SQLException {
+        PreparedStatement pstmt = conn.prepareCached(INSERT_HISTORY_SQL);
+        bindHistory(pstmt, history);
+        pstmt.executeUpdate();
+    }
+    
+    /**
+     * Добавляет записи истории пакетом в рамках текущей транзакции соединения.
+     *
+     * @param conn соединение с базой данных
+     * @param history записи истории для сохранения
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void insertHistoryBatch(PooledConnection conn, List<CardHistory> history) throws SQLException {
+        if (history.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = conn.prepareCached(INSERT_HISTORY_SQL);
+        for (CardHistory record : history) {
+            bindHistory(pstmt, record);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+    
+    /**
+     * Устанавливает данные записи истории в параметры запроса вставки.
+     *
+     * @param pstmt подготовленный запрос
+     * @param history запись истории
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private void bindHistory(PreparedStatement pstmt, CardHistory history) throws SQLException {
+        pstmt.setLong(1, history.getCardId());
+        pstmt.setString(2, history.getCategory());
+        pstmt.setDouble(3, history.getCashbackPercentage());
+        pstmt.setLong(4, SqliteDateCodec.encodeDate(history.getChangeDate()));
+        pstmt.setLong(5, SqliteDateCodec.encodeDateTime(history.getRecordDate()));
+    }
     
     /**
      * Получает историю изменений для конкретной карты.
@@ -240,11 +407,10 @@ public class SqliteCardDao implements CardDao {
      */
     @Override
     public List<CardHistory> findHistoryByCardId(Long cardId) {
-        String sql = "SELECT * FROM card_history WHERE card_id = ? ORDER BY change_date DESC";
         List<CardHistory> history = new ArrayList<>();
         
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepareCached(SELECT_HISTORY_BY_CARD_SQL);
             
             pstmt.setLong(1, cardId);
             
@@ -268,11 +434,10 @@ public class SqliteCardDao implements CardDao {
      */
     @Override
     public List<Card> findByCategory(String category) {
-        String sql = "SELECT * FROM cards WHERE category = ?";
         List<Card> cards = new ArrayList<>();
         
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepareCached(SELECT_BY_CATEGORY_SQL);
             
             pstmt.setString(1, category);
             
@@ -289,33 +454,126 @@ public class SqliteCardDao implements CardDao {
     }
     
     /**
-     * Находит все карты с истекающей категорией кэшбэка.
+     * Находит активную карту с максимальным кэшбэком в категории одним запросом
+     * с сортировкой и ограничением выборки.
      *
-     * @param date дата истечения категории
-     * @return список карт с истекающей категорией
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
      */
     @Override
-    public List<Card> findByExpiringCategory(LocalDate date) {
-        String sql = "SELECT * FROM cards WHERE category_change_date <= ? AND is_active = 1";
-        List<Card> cards = new ArrayList<>();
-        
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public Optional<Card> findBestCardForCategory(String category) {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepareCached(SELECT_BEST_BY_CATEGORY_SQL);
             
-            pstmt.setString(1, date.toString());
+            pstmt.setString(1, category);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    cards.add(extractCardFromResultSet(rs));
+                if (rs.next()) {
+                    return Optional.of(extractCardFromResultSet(rs));
                 }
             }
             
-            return cards;
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка при поиске лучшей карты по категории", e);
+        }
+    }
+    
+    /**
+     * Находит все карты с истекающей категорией кэшбэка.
+     *
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     */
+    @Override
+    public List<Card> findByExpiringCategory(LocalDate date) {
+        try (PooledConnection conn = pool.acquire()) {
+            return selectExpiring(conn, date);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка при поиске истекающих карт", e);
         }
     }
     
+    /**
+     * Переводит истекающие карты в статус EXPIRED одним запросом UPDATE.
+     * Выборка затронутых карт и обновление выполняются одной транзакцией.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        List<Card> expired = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire()) {
+            conn.inTransaction(() -> {
+                expired.addAll(selectExpiring(conn, date));
+                if (!expired.isEmpty()) {
+                    PreparedStatement pstmt = conn.prepareCached(EXPIRE_SQL);
+                    pstmt.setLong(1, SqliteDateCodec.encodeDate(date));
+                    pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка при обновлении статуса истекающих карт", e);
+        }
+        expired.forEach(card -> card.setStatus(Card.CardStatus.EXPIRED));
+        return expired;
+    }
+    
+    /**
+     * Выбирает активные карты с истекающей категорией на переданном соединении.
+     *
+     * @param conn соединение с базой данных
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private List<Card> selectExpiring(PooledConnection conn, LocalDate date) throws SQLException {
+        List<Card> cards = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepareCached(SELECT_EXPIRING_SQL);
+        pstmt.setLong(1, SqliteDateCodec.encodeDate(date));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                cards.add(extractCardFromResultSet(rs));
+            }
+        }
+        return cards;
+    }
+    
+    /**
+     * Возвращает количество обращений к кэшу подготовленных запросов,
+     * не потребовавших повторной подготовки SQL.
+     *
+     * @return количество попаданий в кэш
+     */
+    public long getStatementCacheHits() {
+        return pool.getStatementCacheHits();
+    }
+    
+    /**
+     * Возвращает количество подготовок SQL-запросов, выполненных из-за отсутствия запроса в кэше.
+     *
+     * @return количество промахов кэша
+     */
+    public long getStatementCacheMisses() {
+        return pool.getStatementCacheMisses();
+    }
+    
+    /**
+     * Каждая операция фиксируется своей транзакцией, поэтому отложенных изменений нет.
+     */
+    @Override
+    public void flush() {
+    }
+    
+    /**
+     * Закрывает пул соединений с базой данных.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+    
     /**
      * Извлекает данные карты из ResultSet.
      *
@@ -330,7 +588,7 @@ public class SqliteCardDao implements CardDao {
         card.setCardName(rs.getString("card_name"));
         card.setCategory(rs.getString("category"));
         card.setCashback(rs.getDouble("cashback"));
-        card.setCategoryChangeDate(LocalDate.parse(rs.getString("category_change_date")));
+        card.setCategoryChangeDate(SqliteDateCodec.decodeDate(rs.getLong("category_change_date")));
         card.setActive(rs.getInt("is_active") == 1);
         return card;
     }
@@ -348,8 +606,8 @@ public class SqliteCardDao implements CardDao {
         history.setCardId(rs.getLong("card_id"));
         history.setCategory(rs.getString("category"));
         history.setCashbackPercentage(rs.getDouble("cashback_percentage"));
-        history.setChangeDate(LocalDate.parse(rs.getString("change_date")));
-        history.setRecordDate(LocalDateTime.parse(rs.getString("record_date")));
+        history.setChangeDate(SqliteDateCodec.decodeDate(rs.getLong("change_date")));
+        history.setRecordDate(SqliteDateCodec.decodeDateTime(rs.getLong("record_date")));
         return history;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.example.cashbacktracker.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Небольшой пул долгоживущих соединений с базой данных SQLite.
+ * Соединения открываются по требованию, переиспользуются между операциями
+ * и закрываются только при закрытии пула.
+ * Транзакции открываются в режиме IMMEDIATE, чтобы блокировка записи
+ * захватывалась сразу, а не при первом изменении внутри транзакции.
+ */
+class SqliteConnectionPool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private final String dbUrl;
+    private final SqlitePragmaProfile pragmaProfile;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Создает пул соединений.
+     *
+     * @param dbUrl JDBC URL базы данных
+     * @param maxSize максимальное количество одновременно выданных соединений
+     * @param pragmaProfile параметры PRAGMA, применяемые к каждому новому соединению
+     */
+    SqliteConnectionPool(String dbUrl, int maxSize, SqlitePragmaProfile pragmaProfile) {
+        this.dbUrl = dbUrl;
+        this.pragmaProfile = pragmaProfile;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Выдает соединение из пула, открывая новое при отсутствии свободных.
+     * Если все соединения заняты, ожидает возврата одного из них.
+     *
+     * @return соединение, которое необходимо закрыть после использования
+     * @throws SQLException если пул закрыт или соединение не удалось открыть
+     */
+    PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+        try {
+            PooledConnection conn;
+            while ((conn = idle.pollFirst()) != null) {
+                if (conn.isUsable()) {
+                    return conn;
+                }
+                conn.closePhysically();
+            }
+            return new PooledConnection(this, open(), STATEMENT_CACHE_SIZE);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул.
+     *
+     * @param conn соединение, выданное методом {@link #acquire()}
+     */
+    void release(PooledConnection conn) {
+        if (closed || !conn.isUsable()) {
+            conn.closePhysically();
+        } else {
+            idle.offerFirst(conn);
+        }
+        permits.release();
+    }
+
+    /**
+     * Учитывает обращение к кэшу подготовленных запросов, завершившееся попаданием.
+     */
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    /**
+     * Учитывает обращение к кэшу подготовленных запросов, потребовавшее подготовки запроса.
+     */
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    /**
+     * Возвращает количество попаданий в кэш подготовленных запросов всех соединений пула.
+     *
+     * @return количество попаданий
+     */
+    long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * Возвращает количество промахов кэша подготовленных запросов всех соединений пула.
+     *
+     * @return количество промахов
+     */
+    long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Открывает новое физическое соединение с базой данных.
+     *
+     * @return открытое соединение
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private Connection open() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("busy_timeout", String.valueOf(BUSY_TIMEOUT_MS));
+        properties.setProperty("transaction_mode", "IMMEDIATE");
+        pragmaProfile.applyTo(properties);
+        return DriverManager.getConnection(dbUrl, properties);
+    }
+
+    /**
+     * Закрывает все свободные соединения. Соединения, выданные на момент
+     * закрытия, будут закрыты при возврате в пул.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            conn.closePhysically();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cashbacktracker.dao;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Преобразует даты в целочисленное представление, в котором они хранятся в SQLite.
+ * Даты хранятся как номер дня от 1970-01-01, дата и время записи — как количество
+ * миллисекунд от 1970-01-01T00:00 без учета часового пояса.
+ */
+final class SqliteDateCodec {
+
+    private SqliteDateCodec() {
+    }
+
+    /**
+     * Кодирует дату номером дня.
+     *
+     * @param date дата
+     * @return номер дня от 1970-01-01
+     */
+    static long encodeDate(LocalDate date) {
+        return date.toEpochDay();
+    }
+
+    /**
+     * Восстанавливает дату по номеру дня.
+     *
+     * @param epochDay номер дня от 1970-01-01
+     * @return дата
+     */
+    static LocalDate decodeDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Кодирует дату и время количеством миллисекунд.
+     *
+     * @param dateTime дата и время
+     * @return количество миллисекунд от 1970-01-01T00:00
+     */
+    static long encodeDateTime(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Восстанавливает дату и время по количеству миллисекунд.
+     *
+     * @param epochMillis количество миллисекунд от 1970-01-01T00:00
+     * @return дата и время
+     */
+    static LocalDateTime decodeDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
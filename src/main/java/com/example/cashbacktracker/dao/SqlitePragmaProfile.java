@@ -0,0 +1,46 @@
+package com.example.cashbacktracker.dao;
+
+import java.util.Properties;
+
+/**
+ * Набор параметров PRAGMA, применяемых к каждому соединению SQLite при открытии.
+ * Определяет баланс между надежностью записи и пропускной способностью хранилища.
+ *
+ * @param journalMode режим журнала (DELETE, WAL и т.д.)
+ * @param synchronous режим синхронизации с диском (FULL, NORMAL, OFF)
+ * @param mmapSize размер области файла, отображаемой в память, в байтах
+ * @param tempStore место хранения временных таблиц (DEFAULT, FILE, MEMORY)
+ * @param cacheSize размер кэша страниц; отрицательное значение задает размер в килобайтах
+ */
+public record SqlitePragmaProfile(String journalMode, String synchronous, long mmapSize,
+                                  String tempStore, int cacheSize) {
+
+    /**
+     * Профиль с максимальной надежностью: журнал отката и полная синхронизация
+     * при каждой фиксации транзакции.
+     */
+    public static final SqlitePragmaProfile DURABLE =
+            new SqlitePragmaProfile("DELETE", "FULL", 0, "DEFAULT", -2000);
+
+    /**
+     * Профиль для высокой нагрузки на запись: журнал WAL, при котором читатели
+     * не блокируются писателем, синхронизация только на контрольных точках,
+     * отображение файла в память и временные таблицы в памяти.
+     */
+    public static final SqlitePragmaProfile THROUGHPUT =
+            new SqlitePragmaProfile("WAL", "NORMAL", 256L * 1024 * 1024, "MEMORY", -16000);
+
+    /**
+     * Записывает параметры профиля в свойства соединения JDBC.
+     * Драйвер SQLite выполняет соответствующие PRAGMA при открытии соединения.
+     *
+     * @param properties свойства соединения
+     */
+    void applyTo(Properties properties) {
+        properties.setProperty("journal_mode", journalMode);
+        properties.setProperty("synchronous", synchronous);
+        properties.setProperty("mmap_size", String.valueOf(mmapSize));
+        properties.setProperty("temp_store", tempStore);
+        properties.setProperty("cache_size", String.valueOf(cacheSize));
+    }
+}
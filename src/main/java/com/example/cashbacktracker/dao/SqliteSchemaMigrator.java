@@ -0,0 +1,247 @@
+package com.example.cashbacktracker.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Выполняет версионные миграции схемы базы данных SQLite.
+ * Текущая версия схемы хранится в заголовке файла базы данных ({@code PRAGMA user_version}),
+ * каждая миграция применяется в отдельной транзакции вместе с повышением версии,
+ * поэтому существующие базы обновляются без потери данных.
+ */
+class SqliteSchemaMigrator {
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS cards (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                bank_name TEXT NOT NULL,
+                card_name TEXT NOT NULL,
+                category TEXT NOT NULL,
+                cashback REAL NOT NULL,
+                category_change_date TEXT NOT NULL,
+                is_active INTEGER NOT NULL
+            )
+            """;
+    private static final String CREATE_HISTORY_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS card_history (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                card_id INTEGER NOT NULL,
+                category TEXT NOT NULL,
+                cashback_percentage REAL NOT NULL,
+                change_date TEXT NOT NULL,
+                record_date TEXT NOT NULL,
+                FOREIGN KEY (card_id) REFERENCES cards(id)
+            )
+            """;
+    private static final String CREATE_CATEGORY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_cards_category ON cards (category)";
+    private static final String CREATE_EXPIRY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_cards_active_change_date ON cards (is_active, category_change_date)";
+    private static final String CREATE_HISTORY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_card_history_card_date ON card_history (card_id, change_date DESC)";
+    private static final String CREATE_INTEGER_DATE_TABLE_SQL = """
+            CREATE TABLE cards_v3 (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                bank_name TEXT NOT NULL,
+                card_name TEXT NOT NULL,
+                category TEXT NOT NULL,
+                cashback REAL NOT NULL,
+                category_change_date INTEGER NOT NULL,
+                is_active INTEGER NOT NULL
+            )
+            """;
+    private static final String CREATE_INTEGER_DATE_HISTORY_TABLE_SQL = """
+            CREATE TABLE card_history_v3 (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                card_id INTEGER NOT NULL,
+                category TEXT NOT NULL,
+                cashback_percentage REAL NOT NULL,
+                change_date INTEGER NOT NULL,
+                record_date INTEGER NOT NULL,
+                FOREIGN KEY (card_id) REFERENCES cards(id)
+            )
+            """;
+    private static final String DELETE_SEQUENCE_SQL = "DELETE FROM sqlite_sequence WHERE name = ?";
+    private static final String COPY_SEQUENCE_SQL = """
+            INSERT INTO sqlite_sequence (name, seq)
+            SELECT ?, seq FROM sqlite_sequence WHERE name = ?
+            """;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, conn -> execute(conn, CREATE_TABLE_SQL, CREATE_HISTORY_TABLE_SQL)),
+            new Migration(2, conn -> execute(conn,
+                    CREATE_CATEGORY_INDEX_SQL, CREATE_EXPIRY_INDEX_SQL, CREATE_HISTORY_INDEX_SQL)),
+            new Migration(3, SqliteSchemaMigrator::convertDatesToIntegers)
+    );
+
+    /**
+     * Версия схемы, до которой обновляется база данных.
+     */
+    static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+    /**
+     * Применяет к базе данных все миграции, версия которых выше текущей.
+     *
+     * @param conn соединение с базой данных
+     * @return версия схемы после миграции
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    static int migrate(PooledConnection conn) throws SQLException {
+        if (readUserVersion(conn) >= LATEST_VERSION) {
+            return readUserVersion(conn);
+        }
+        for (Migration migration : MIGRATIONS) {
+            conn.inTransaction(() -> {
+                if (readUserVersion(conn) < migration.version()) {
+                    migration.step().apply(conn);
+                    writeUserVersion(conn, migration.version());
+                }
+            });
+        }
+        return readUserVersion(conn);
+    }
+
+    /**
+     * Читает текущую версию схемы из заголовка базы данных.
+     *
+     * @param conn соединение с базой данных
+     * @return версия схемы; 0 для базы, созданной до появления миграций
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    static int readUserVersion(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Записывает версию схемы в заголовок базы данных.
+     *
+     * @param conn соединение с базой данных
+     * @param version новая версия схемы
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private static void writeUserVersion(PooledConnection conn, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+
+    /**
+     * Перестраивает таблицы так, чтобы даты хранились целыми числами
+     * (см. {@link SqliteDateCodec}) вместо текста ISO-8601.
+     * Таблицы пересоздаются, потому что столбец с типом TEXT приводит любые числа к тексту.
+     * Идентификаторы строк и счетчики AUTOINCREMENT сохраняются.
+     *
+     * @param conn соединение с базой данных
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private static void convertDatesToIntegers(PooledConnection conn) throws SQLException {
+        execute(conn, CREATE_INTEGER_DATE_TABLE_SQL, CREATE_INTEGER_DATE_HISTORY_TABLE_SQL);
+
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT * FROM cards");
+             PreparedStatement insert = conn.prepareStatement("""
+                     INSERT INTO cards_v3 (id, bank_name, card_name, category, cashback, category_change_date, is_active)
+                     VALUES (?, ?, ?, ?, ?, ?, ?)
+                     """)) {
+            while (rs.next()) {
+                insert.setLong(1, rs.getLong("id"));
+                insert.setString(2, rs.getString("bank_name"));
+                insert.setString(3, rs.getString("card_name"));
+                insert.setString(4, rs.getString("category"));
+                insert.setDouble(5, rs.getDouble("cashback"));
+                insert.setLong(6, SqliteDateCodec.encodeDate(LocalDate.parse(rs.getString("category_change_date"))));
+                insert.setInt(7, rs.getInt("is_active"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT * FROM card_history");
+             PreparedStatement insert = conn.prepareStatement("""
+                     INSERT INTO card_history_v3 (id, card_id, category, cashback_percentage, change_date, record_date)
+                     VALUES (?, ?, ?, ?, ?, ?)
+                     """)) {
+            while (rs.next()) {
+                insert.setLong(1, rs.getLong("id"));
+                insert.setLong(2, rs.getLong("card_id"));
+                insert.setString(3, rs.getString("category"));
+                insert.setDouble(4, rs.getDouble("cashback_percentage"));
+                insert.setLong(5, SqliteDateCodec.encodeDate(LocalDate.parse(rs.getString("change_date"))));
+                insert.setLong(6, SqliteDateCodec.encodeDateTime(LocalDateTime.parse(rs.getString("record_date"))));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        copySequence(conn, "cards", "cards_v3");
+        copySequence(conn, "card_history", "card_history_v3");
+        execute(conn,
+                "DROP TABLE cards",
+                "DROP TABLE card_history",
+                "ALTER TABLE cards_v3 RENAME TO cards",
+                "ALTER TABLE card_history_v3 RENAME TO card_history",
+                CREATE_CATEGORY_INDEX_SQL,
+                CREATE_EXPIRY_INDEX_SQL,
+                CREATE_HISTORY_INDEX_SQL);
+    }
+
+    /**
+     * Переносит значение счетчика AUTOINCREMENT со старой таблицы на новую,
+     * чтобы идентификаторы удаленных строк не были выданы повторно.
+     *
+     * @param conn соединение с базой данных
+     * @param from имя исходной таблицы
+     * @param to имя новой таблицы
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private static void copySequence(PooledConnection conn, String from, String to) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(DELETE_SEQUENCE_SQL);
+             PreparedStatement copy = conn.prepareStatement(COPY_SEQUENCE_SQL)) {
+            delete.setString(1, to);
+            delete.executeUpdate();
+            copy.setString(1, to);
+            copy.setString(2, from);
+            copy.executeUpdate();
+        }
+    }
+
+    /**
+     * Выполняет набор DDL-запросов.
+     *
+     * @param conn соединение с базой данных
+     * @param sqls запросы для выполнения
+     * @throws SQLException если произошла ошибка при работе с базой данных
+     */
+    private static void execute(PooledConnection conn, String... sqls) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : sqls) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Шаг миграции, изменяющий схему или данные.
+     */
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(PooledConnection conn) throws SQLException;
+    }
+
+    /**
+     * Миграция схемы до указанной версии.
+     *
+     * @param version версия схемы после применения миграции
+     * @param step действия миграции
+     */
+    private record Migration(int version, MigrationStep step) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.cashbacktracker.dao;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение списков записей из файлов хранилища.
+ * Записи материализуются по одной и сразу передаются обработчику,
+ * без построения промежуточного списка или дерева всего документа.
+ */
+final class StreamingLoader {
+
+    private StreamingLoader() {
+    }
+
+    /**
+     * Читает JSON массив записей через {@link MappingIterator}.
+     *
+     * @param mapper настроенный ObjectMapper
+     * @param file файл с JSON массивом
+     * @param type класс записи
+     * @param consumer обработчик прочитанных записей
+     * @param <T> тип записи
+     * @return статистика загрузки
+     * @throws IOException если произошла ошибка ввода-вывода или разбора
+     */
+    static <T> LoadStats readJson(ObjectMapper mapper, File file, Class<T> type, Consumer<T> consumer) throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        try (MappingIterator<T> it = mapper.readerFor(type).readValues(file)) {
+            while (it.hasNextValue()) {
+                consumer.accept(it.nextValue());
+                count++;
+            }
+        }
+        return new LoadStats(count, file.length(), System.nanoTime() - start);
+    }
+
+    /**
+     * Читает XML список записей через StAX: каждый дочерний элемент корня
+     * десериализуется отдельно заранее настроенным ObjectReader.
+     *
+     * @param mapper настроенный XmlMapper, используемый как фабрика парсеров
+     * @param reader ObjectReader для класса записи
+     * @param file XML файл со списком
+     * @param consumer обработчик прочитанных записей
+     * @param <T> тип записи
+     * @return статистика загрузки
+     * @throws IOException если произошла ошибка ввода-вывода или разбора
+     */
+    static <T> LoadStats readXml(XmlMapper mapper, ObjectReader reader, File file, Consumer<T> consumer)
+            throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            XMLStreamReader sr = mapper.getFactory().getXMLInputFactory().createXMLStreamReader(in);
+            try {
+                sr.nextTag();
+                while (sr.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    T value = reader.readValue(mapper.getFactory().createParser(sr));
+                    consumer.accept(value);
+                    count++;
+                }
+            } finally {
+                sr.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Некорректный XML в файле " + file, e);
+        }
+        return new LoadStats(count, file.length(), System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.cashbacktracker.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь строк для хранилища с записями фиксированной длины.
+ * Каждая различная строка хранится один раз и заменяется в записях своим номером.
+ * Файл словаря только дописывается: запись состоит из длины в байтах и строки в UTF-8.
+ * Оборванная последняя запись (например, после сбоя при записи) отбрасывается при открытии.
+ */
+final class StringDictionary implements AutoCloseable {
+    /**
+     * Код отсутствующей строки.
+     */
+    static final int NULL_CODE = -1;
+
+    private final FileChannel channel;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Открывает словарь и читает все сохраненные строки.
+     *
+     * @param path путь к файлу словаря
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    StringDictionary(Path path) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Читает строки из файла и отрезает оборванный хвост.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // читаем файл целиком
+        }
+        buffer.flip();
+        int valid = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            register(new String(bytes, StandardCharsets.UTF_8));
+            valid = buffer.position();
+        }
+        if (valid < size) {
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+    }
+
+    /**
+     * Добавляет строку в словарь в памяти.
+     *
+     * @param value строка
+     * @return номер строки
+     */
+    private int register(String value) {
+        int code = strings.size();
+        strings.add(value);
+        codes.put(value, code);
+        return code;
+    }
+
+    /**
+     * Возвращает номер строки, при необходимости дописывая ее в файл словаря.
+     *
+     * @param value строка или null
+     * @return номер строки или {@link #NULL_CODE}
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    int encode(String value) throws IOException {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length).put(bytes).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return register(value);
+    }
+
+    /**
+     * Возвращает строку по номеру.
+     *
+     * @param code номер строки
+     * @return строка или null для {@link #NULL_CODE}
+     */
+    String decode(int code) {
+        return code == NULL_CODE ? null : strings.get(code);
+    }
+
+    /**
+     * Возвращает количество строк в словаре.
+     *
+     * @return количество строк
+     */
+    int size() {
+        return strings.size();
+    }
+
+    /**
+     * Сбрасывает файл словаря на диск.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    void force() throws IOException {
+        channel.force(true);
+    }
+
+    /**
+     * Закрывает файл словаря.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
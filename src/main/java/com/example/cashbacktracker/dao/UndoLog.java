@@ -0,0 +1,34 @@
+package com.example.cashbacktracker.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Журнал отмены изменения хранилища в памяти.
+ * Изменение регистрирует действие, возвращающее прежнее состояние, до или сразу после
+ * каждого шага. Если изменение не удалось записать, {@link #rollback()} выполняет действия
+ * в обратном порядке, и пакетное изменение либо применяется целиком, либо не применяется вовсе.
+ * Используется под исключающей блокировкой хранилища.
+ */
+final class UndoLog {
+    private final List<Runnable> actions = new ArrayList<>();
+
+    /**
+     * Регистрирует действие отмены очередного шага изменения.
+     *
+     * @param action действие, возвращающее состояние до шага
+     */
+    void add(Runnable action) {
+        actions.add(action);
+    }
+
+    /**
+     * Отменяет все зарегистрированные шаги в обратном порядке.
+     */
+    void rollback() {
+        for (int i = actions.size() - 1; i >= 0; i--) {
+            actions.get(i).run();
+        }
+        actions.clear();
+    }
+}
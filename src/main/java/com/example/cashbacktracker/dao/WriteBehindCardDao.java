@@ -0,0 +1,917 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Обертка над CardDao с отложенной записью.
+ * Изменения помещаются в ограниченную очередь и сразу возвращают управление, а один
+ * фоновый поток забирает их пачками и передает хранилищу через пакетные методы,
+ * сохраняя порядок изменений. Когда очередь заполнена, запись либо ждет освобождения
+ * места, либо отклоняется — в зависимости от {@link OverflowPolicy}.
+ * <p>
+ * Пока изменение не записано, чтения {@link #getAllCards()}, {@link #getCardById(Long)}
+ * и {@link #findHistoryByCardId(Long)} накладывают его на результат хранилища, поэтому
+ * вызывающий код сразу видит свои изменения. Новая карта до записи получает временный
+ * отрицательный идентификатор, по которому ее можно изменить или удалить; при записи
+ * хранилище назначает постоянный идентификатор, и отложенные изменения по временному
+ * идентификатору передаются хранилищу уже с ним. Запросы по категории и сроку действия,
+ * а также {@link #expireCards(LocalDate)}, зависят от правил сравнения конкретного
+ * хранилища и поэтому сначала дожидаются записи очереди.
+ * <p>
+ * Если хранилище выбросило исключение, незаписанные изменения пачки остаются в очереди
+ * и в наложении и записываются повторно. Повтор безопасен, потому что пакетные методы
+ * хранилища применяют пакет целиком или не применяют вовсе (см. {@link CardDao#saveCards(List)}). После {@value #MAX_ATTEMPTS} неудачных попыток
+ * они отбрасываются, получатели {@link WriteListener} узнают об ошибке сразу, а сама ошибка
+ * выбрасывается при следующем вызове {@link #flush()} или {@link #close()}.
+ * Очередь записывается при закрытии и при завершении JVM (через shutdown hook); shutdown hook
+ * после записи очереди сам сбрасывает хранилище, не полагаясь на собственный shutdown hook
+ * хранилища, который выполняется параллельно в неопределенном порядке.
+ */
+public class WriteBehindCardDao implements CardDao {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 100;
+    private static final Comparator<CardHistory> BY_CHANGE_DATE_DESC = Comparator.comparing(
+            CardHistory::getChangeDate, Comparator.nullsLast(Comparator.<LocalDate>reverseOrder()));
+
+    private final CardDao delegate;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private final ArrayDeque<PendingWrite> queue = new ArrayDeque<>();
+    private final Map<Long, PendingCard> pendingCards = new HashMap<>();
+    private final ArrayDeque<PendingWrite> pendingInserts = new ArrayDeque<>();
+    private final ArrayDeque<PendingWrite> pendingHistory = new ArrayDeque<>();
+    private final Map<Long, Long> resolvedIds = new HashMap<>();
+    private final Map<Long, Integer> provisionalRefs = new HashMap<>();
+    private final List<WriteListener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private long nextProvisionalId = -1;
+    private int inFlight;
+    private boolean closed;
+    private RuntimeException lastFailure;
+
+    /**
+     * Поведение при заполненной очереди.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Ждать, пока фоновый поток освободит место.
+         */
+        BLOCK,
+        /**
+         * Отклонить изменение с {@link RejectedExecutionException}.
+         */
+        REJECT
+    }
+
+    /**
+     * Получатель событий фонового потока записи.
+     * Методы вызываются в потоке записи, поэтому не должны надолго его занимать.
+     */
+    public interface WriteListener {
+
+        /**
+         * Вызывается после того, как пачка изменений записана в хранилище.
+         */
+        void batchWritten();
+
+        /**
+         * Вызывается, когда пачка изменений отброшена после исчерпания повторных попыток.
+         *
+         * @param error последняя ошибка хранилища
+         */
+        void writeFailed(RuntimeException error);
+    }
+
+    /**
+     * Тип отложенного изменения.
+     */
+    private enum Kind {
+        SAVE_CARD,
+        UPDATE_CARD,
+        DELETE_CARD,
+        SAVE_HISTORY
+    }
+
+    /**
+     * Отложенное изменение.
+     * Идентификатор карты запоминается при постановке в очередь, потому что объекты
+     * карт и записей истории могут измениться до записи.
+     *
+     * @param kind тип изменения
+     * @param card сохраняемая или обновляемая карта
+     * @param cardId идентификатор карты (временный для новой карты)
+     * @param history сохраняемая запись истории
+     */
+    private record PendingWrite(Kind kind, Card card, Long cardId, CardHistory history) {
+    }
+
+    /**
+     * Последнее состояние карты с отложенными обновлениями или удалением.
+     */
+    private static final class PendingCard {
+        private Card card;
+        private int writes;
+    }
+
+    /**
+     * Создает обертку и запускает фоновый поток записи.
+     *
+     * @param delegate хранилище, в которое записываются изменения
+     * @param capacity максимальное количество изменений в очереди
+     * @param batchSize максимальное количество изменений, передаваемых хранилищу за раз
+     * @param overflowPolicy поведение при заполненной очереди
+     */
+    public WriteBehindCardDao(CardDao delegate, int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки должны быть положительными");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::runWriter, "card-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.shutdownHook = new Thread(this::drainOnShutdown, "card-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Возвращает количество изменений, еще не записанных в хранилище.
+     *
+     * @return количество изменений в очереди и в записываемой пачке
+     */
+    public int pendingWrites() {
+        lock.lock();
+        try {
+            return queue.size() + inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет получателя событий фоновой записи.
+     *
+     * @param listener получатель событий
+     */
+    public void addListener(WriteListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Помещает изменения в очередь и накладывает их на результаты чтений.
+     * Новым картам назначаются временные идентификаторы.
+     * Пачка, превышающая размер очереди, принимается только в пустую очередь.
+     *
+     * @param writes изменения в порядке выполнения
+     */
+    private void enqueue(List<PendingWrite> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            while (!queue.isEmpty() && queue.size() + writes.size() > capacity) {
+                if (overflowPolicy == OverflowPolicy.REJECT) {
+                    throw new RejectedExecutionException("Очередь записи переполнена");
+                }
+                notFull.await();
+                ensureOpen();
+            }
+            for (PendingWrite write : writes) {
+                if (write.kind() == Kind.SAVE_CARD) {
+                    write = new PendingWrite(Kind.SAVE_CARD, write.card(), nextProvisionalId--, null);
+                    write.card().setId(write.cardId());
+                }
+                queue.add(write);
+                addToOverlay(write);
+                if (isProvisional(write.cardId())) {
+                    provisionalRefs.merge(write.cardId(), 1, Integer::sum);
+                }
+            }
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ожидание места в очереди записи прервано", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проверяет, что хранилище не закрыто.
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Хранилище закрыто");
+        }
+    }
+
+    /**
+     * Проверяет, что изменение ссылается на карту с идентификатором.
+     *
+     * @param id идентификатор карты
+     */
+    private static void requireId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Не задан идентификатор карты");
+        }
+    }
+
+    /**
+     * Возвращает постоянный идентификатор карты, если переданный идентификатор временный
+     * и карта уже записана. Вызывается под блокировкой.
+     *
+     * @param id идентификатор карты
+     * @return постоянный идентификатор или переданный идентификатор
+     */
+    private Long resolve(Long id) {
+        Long resolved = resolvedIds.get(id);
+        return resolved != null ? resolved : id;
+    }
+
+    /**
+     * Добавляет изменение в наложение для чтений.
+     *
+     * @param write отложенное изменение
+     */
+    private void addToOverlay(PendingWrite write) {
+        switch (write.kind()) {
+            case SAVE_CARD -> pendingInserts.add(write);
+            case UPDATE_CARD, DELETE_CARD -> {
+                PendingCard pending = pendingCards.computeIfAbsent(resolve(write.cardId()), id -> new PendingCard());
+                pending.card = write.card();
+                pending.writes++;
+            }
+            case SAVE_HISTORY -> pendingHistory.add(write);
+        }
+    }
+
+    /**
+     * Убирает изменение из наложения после записи или отказа от нее.
+     * Изменения снимаются в порядке очереди, поэтому новые карты и записи истории
+     * снимаются с начала своих очередей. После записи новой карты ее временный
+     * идентификатор связывается с постоянным; связь удаляется, когда на временный
+     * идентификатор больше не ссылается ни одно изменение в очереди или наложении.
+     *
+     * @param write изменение
+     * @param written true, если изменение записано в хранилище
+     */
+    private void removeFromOverlay(PendingWrite write, boolean written) {
+        switch (write.kind()) {
+            case SAVE_CARD -> {
+                pendingInserts.poll();
+                if (written) {
+                    Long id = write.card().getId();
+                    resolvedIds.put(write.cardId(), id);
+                    PendingCard pending = pendingCards.remove(write.cardId());
+                    if (pending != null) {
+                        pendingCards.put(id, pending);
+                    }
+                }
+            }
+            case UPDATE_CARD, DELETE_CARD -> {
+                Long id = resolve(write.cardId());
+                PendingCard pending = pendingCards.get(id);
+                if (pending != null && --pending.writes == 0) {
+                    pendingCards.remove(id);
+                }
+            }
+            case SAVE_HISTORY -> pendingHistory.poll();
+        }
+        if (isProvisional(write.cardId()) && provisionalRefs.merge(write.cardId(), -1, Integer::sum) == 0) {
+            provisionalRefs.remove(write.cardId());
+            resolvedIds.remove(write.cardId());
+        }
+    }
+
+    /**
+     * Цикл фонового потока: забирает пачку изменений и записывает ее.
+     * Незаписанные из-за ошибки изменения возвращаются в начало очереди и записываются
+     * повторно; после {@value #MAX_ATTEMPTS} неудачных попыток они отбрасываются.
+     * Завершается после закрытия, когда очередь опустела.
+     */
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        int attempt = 0;
+        while (true) {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                while (!queue.isEmpty() && batch.size() < batchSize) {
+                    batch.add(queue.poll());
+                }
+                inFlight = batch.size();
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                apply(batch);
+                attempt = 0;
+                listeners.forEach(listener -> notifyListener(listener::batchWritten));
+                completeBatch();
+            } catch (RuntimeException e) {
+                attempt++;
+                if (attempt < MAX_ATTEMPTS) {
+                    requeue(batch);
+                    try {
+                        Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                } else {
+                    attempt = 0;
+                    dropBatch(batch, e);
+                    listeners.forEach(listener -> notifyListener(() -> listener.writeFailed(e)));
+                    completeBatch();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Возвращает незаписанные изменения в начало очереди в исходном порядке.
+     * Наложение для чтений при этом не меняется.
+     *
+     * @param batch незаписанные изменения
+     */
+    private void requeue(List<PendingWrite> batch) {
+        lock.lock();
+        try {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                restoreProvisionalId(batch.get(i));
+                queue.addFirst(batch.get(i));
+            }
+            inFlight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Отбрасывает незаписанные изменения: снимает их с наложения и запоминает ошибку.
+     *
+     * @param batch незаписанные изменения
+     * @param failure ошибка хранилища
+     */
+    private void dropBatch(List<PendingWrite> batch, RuntimeException failure) {
+        lock.lock();
+        try {
+            for (PendingWrite write : batch) {
+                restoreProvisionalId(write);
+                removeFromOverlay(write, false);
+            }
+            lastFailure = failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Завершает обработку пачки после уведомления получателей событий,
+     * чтобы ожидающие записи очереди видели результат уведомления.
+     */
+    private void completeBatch() {
+        lock.lock();
+        try {
+            inFlight = 0;
+            if (queue.isEmpty()) {
+                drained.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает новой карте временный идентификатор, если хранилище успело назначить
+     * ей идентификатор в незавершенной записи.
+     *
+     * @param write незаписанное изменение
+     */
+    private static void restoreProvisionalId(PendingWrite write) {
+        if (write.kind() == Kind.SAVE_CARD) {
+            write.card().setId(write.cardId());
+        }
+    }
+
+    /**
+     * Вызывает получателя событий; его ошибка не должна останавливать поток записи.
+     *
+     * @param notification вызов получателя
+     */
+    private static void notifyListener(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            // ошибка получателя не влияет на запись изменений
+        }
+    }
+
+    /**
+     * Записывает пачку в хранилище: подряд идущие изменения одного типа
+     * передаются одним вызовом пакетного метода. Записанные изменения сразу
+     * снимаются с наложения и удаляются из пачки, поэтому при ошибке в пачке
+     * остаются только незаписанные изменения. Временные идентификаторы карт
+     * заменяются постоянными перед передачей хранилищу.
+     *
+     * @param batch изменения в порядке выполнения
+     */
+    private void apply(List<PendingWrite> batch) {
+        while (!batch.isEmpty()) {
+            Kind kind = batch.get(0).kind();
+            int end = 1;
+            while (kind != Kind.DELETE_CARD && end < batch.size() && batch.get(end).kind() == kind) {
+                end++;
+            }
+            List<PendingWrite> run = batch.subList(0, end);
+            switch (kind) {
+                case SAVE_CARD -> delegate.saveCards(run.stream().map(PendingWrite::card).toList());
+                case UPDATE_CARD -> {
+                    List<Card> cards = resolveIds(run).stream().map(PendingWrite::card).toList();
+                    if (!cards.isEmpty()) {
+                        delegate.updateCards(cards);
+                    }
+                }
+                case DELETE_CARD -> {
+                    Long id = resolveId(run.get(0).cardId());
+                    if (!isProvisional(id)) {
+                        delegate.deleteCard(id);
+                    }
+                }
+                case SAVE_HISTORY -> {
+                    List<CardHistory> records = resolveIds(run).stream().map(PendingWrite::history).toList();
+                    if (!records.isEmpty()) {
+                        delegate.saveHistoryBatch(records);
+                    }
+                }
+            }
+            lock.lock();
+            try {
+                for (PendingWrite write : run) {
+                    removeFromOverlay(write, true);
+                }
+            } finally {
+                lock.unlock();
+            }
+            run.clear();
+        }
+    }
+
+    /**
+     * Возвращает постоянный идентификатор карты для записи в хранилище.
+     *
+     * @param id идентификатор карты из очереди
+     * @return постоянный идентификатор, если карта уже записана
+     */
+    private Long resolveId(Long id) {
+        lock.lock();
+        try {
+            return resolve(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проставляет постоянные идентификаторы карт в обновляемые карты и записи истории.
+     * Изменения карт, сохранение которых было отброшено, пропускаются.
+     *
+     * @param run обновления карт или записи истории
+     * @return изменения, которые нужно передать хранилищу
+     */
+    private List<PendingWrite> resolveIds(List<PendingWrite> run) {
+        List<PendingWrite> resolved = new ArrayList<>(run.size());
+        lock.lock();
+        try {
+            for (PendingWrite write : run) {
+                Long id = resolve(write.cardId());
+                if (isProvisional(id)) {
+                    continue;
+                }
+                if (write.kind() == Kind.UPDATE_CARD) {
+                    write.card().setId(id);
+                } else {
+                    write.history().setCardId(id);
+                }
+                resolved.add(write);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return resolved;
+    }
+
+    /**
+     * Проверяет, является ли идентификатор временным. Временный идентификатор после
+     * замены на постоянный означает, что сохранение карты было отброшено.
+     *
+     * @param id идентификатор карты
+     * @return true для временного идентификатора
+     */
+    private static boolean isProvisional(Long id) {
+        return id != null && id < 0;
+    }
+
+    /**
+     * Дожидается, пока все изменения из очереди будут записаны в хранилище.
+     */
+    private void drain() {
+        lock.lock();
+        try {
+            while (!queue.isEmpty() || inFlight > 0) {
+                drained.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ожидание записи очереди прервано", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Записывает очередь при завершении JVM и сбрасывает хранилище, если оно еще не закрыто:
+     * при закрытии хранилище сбрасывается само.
+     */
+    private void drainOnShutdown() {
+        drain();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Помещает в очередь сохранение новой карты.
+     *
+     * @param card карта для сохранения
+     */
+    @Override
+    public void saveCard(Card card) {
+        enqueue(List.of(new PendingWrite(Kind.SAVE_CARD, card, null, null)));
+    }
+
+    /**
+     * Помещает в очередь обновление карты.
+     *
+     * @param card карта с обновленными данными
+     */
+    @Override
+    public void updateCard(Card card) {
+        requireId(card.getId());
+        enqueue(List.of(new PendingWrite(Kind.UPDATE_CARD, card, card.getId(), null)));
+    }
+
+    /**
+     * Помещает в очередь сохранение нескольких новых карт.
+     *
+     * @param cards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> cards) {
+        enqueue(cards.stream().map(card -> new PendingWrite(Kind.SAVE_CARD, card, null, null)).toList());
+    }
+
+    /**
+     * Помещает в очередь обновление нескольких карт.
+     *
+     * @param cards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> cards) {
+        cards.forEach(card -> requireId(card.getId()));
+        enqueue(cards.stream().map(card -> new PendingWrite(Kind.UPDATE_CARD, card, card.getId(), null)).toList());
+    }
+
+    /**
+     * Помещает в очередь удаление карты.
+     *
+     * @param id идентификатор карты для удаления
+     */
+    @Override
+    public void deleteCard(Long id) {
+        requireId(id);
+        enqueue(List.of(new PendingWrite(Kind.DELETE_CARD, null, id, null)));
+    }
+
+    /**
+     * Получает список всех карт с наложенными отложенными изменениями.
+     * Наложение копируется до запроса к хранилищу, поэтому изменение, записанное
+     * во время запроса, не теряется и не дублируется.
+     *
+     * @return список всех карт
+     */
+    @Override
+    public List<Card> getAllCards() {
+        Map<Long, Card> changed;
+        List<PendingWrite> inserted;
+        lock.lock();
+        try {
+            if (pendingCards.isEmpty() && pendingInserts.isEmpty()) {
+                changed = Map.of();
+                inserted = List.of();
+            } else {
+                changed = new HashMap<>();
+                pendingCards.forEach((id, pending) -> changed.put(id, pending.card));
+                inserted = new ArrayList<>(pendingInserts);
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<Card> stored = delegate.getAllCards();
+        if (changed.isEmpty() && inserted.isEmpty()) {
+            return stored;
+        }
+        List<Card> result = new ArrayList<>(stored.size() + inserted.size());
+        Set<Long> seen = new HashSet<>();
+        for (Card card : stored) {
+            seen.add(card.getId());
+            addChanged(result, changed, card.getId(), card);
+        }
+        for (PendingWrite write : inserted) {
+            if (!seen.contains(write.card().getId())) {
+                addChanged(result, changed, write.cardId(), write.card());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет в результат карту с учетом отложенного обновления или удаления.
+     *
+     * @param result результат
+     * @param changed отложенные состояния карт по идентификатору
+     * @param id идентификатор карты в наложении
+     * @param card карта без учета отложенных изменений
+     */
+    private static void addChanged(List<Card> result, Map<Long, Card> changed, Long id, Card card) {
+        if (!changed.containsKey(id)) {
+            result.add(card);
+        } else if (changed.get(id) != null) {
+            result.add(changed.get(id));
+        }
+    }
+
+    /**
+     * Находит отложенную новую карту по временному идентификатору. Вызывается под блокировкой.
+     *
+     * @param id идентификатор карты
+     * @return новая карта или null
+     */
+    private Card pendingInsert(Long id) {
+        for (PendingWrite write : pendingInserts) {
+            if (write.cardId().equals(id)) {
+                return write.card();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Находит карту по идентификатору с учетом отложенных изменений.
+     *
+     * @param id идентификатор карты
+     * @return Optional, содержащий карту, если она найдена
+     */
+    @Override
+    public Optional<Card> getCardById(Long id) {
+        Long storedId;
+        lock.lock();
+        try {
+            storedId = resolve(id);
+            PendingCard pending = pendingCards.get(storedId);
+            if (pending != null) {
+                return Optional.ofNullable(pending.card);
+            }
+            Card inserted = pendingInsert(storedId);
+            if (inserted != null) {
+                return Optional.of(inserted);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.getCardById(storedId);
+    }
+
+    /**
+     * Находит карты с указанной категорией после записи очереди.
+     *
+     * @param category категория кэшбэка
+     * @return список карт с указанной категорией
+     */
+    @Override
+    public List<Card> findByCategory(String category) {
+        drain();
+        return delegate.findByCategory(category);
+    }
+
+    /**
+     * Находит активную карту с максимальным кэшбэком в категории после записи очереди.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        drain();
+        return delegate.findBestCardForCategory(category);
+    }
+
+    /**
+     * Находит карты с истекающей категорией после записи очереди.
+     *
+     * @param date дата истечения категории
+     * @return список карт с истекающей категорией
+     */
+    @Override
+    public List<Card> findByExpiringCategory(LocalDate date) {
+        drain();
+        return delegate.findByExpiringCategory(date);
+    }
+
+    /**
+     * Переводит истекающие карты в статус EXPIRED после записи очереди.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        drain();
+        return delegate.expireCards(date);
+    }
+
+    /**
+     * Помещает в очередь сохранение записи истории.
+     *
+     * @param history запись истории для сохранения
+     */
+    @Override
+    public void saveHistory(CardHistory history) {
+        enqueue(List.of(new PendingWrite(Kind.SAVE_HISTORY, null, history.getCardId(), history)));
+    }
+
+    /**
+     * Помещает в очередь сохранение нескольких записей истории.
+     *
+     * @param records записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> records) {
+        enqueue(records.stream()
+                .map(record -> new PendingWrite(Kind.SAVE_HISTORY, null, record.getCardId(), record))
+                .toList());
+    }
+
+    /**
+     * Получает историю изменений карты вместе с отложенными записями истории,
+     * отсортированную по дате изменения по убыванию. Если карта еще не записана
+     * или у нее есть отложенные обновления, сначала дожидается записи очереди,
+     * потому что запись истории для новой или обновленной карты создает хранилище.
+     *
+     * @param cardId идентификатор карты
+     * @return список записей истории изменений
+     */
+    @Override
+    public List<CardHistory> findHistoryByCardId(Long cardId) {
+        List<CardHistory> pending = new ArrayList<>();
+        boolean cardChanged;
+        lock.lock();
+        try {
+            Long id = resolve(cardId);
+            cardChanged = pendingCards.containsKey(id) || pendingInsert(id) != null;
+        } finally {
+            lock.unlock();
+        }
+        if (cardChanged) {
+            drain();
+        }
+        Long storedId;
+        lock.lock();
+        try {
+            storedId = resolve(cardId);
+            for (PendingWrite write : pendingHistory) {
+                if (storedId != null && storedId.equals(resolve(write.cardId()))) {
+                    pending.add(write.history());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<CardHistory> stored = delegate.findHistoryByCardId(storedId);
+        if (pending.isEmpty()) {
+            return stored;
+        }
+        Set<Long> seen = new HashSet<>();
+        for (CardHistory record : stored) {
+            seen.add(record.getId());
+        }
+        List<CardHistory> result = new ArrayList<>(stored);
+        for (CardHistory record : pending) {
+            if (record.getId() == null || !seen.contains(record.getId())) {
+                result.add(record);
+            }
+        }
+        result.sort(BY_CHANGE_DATE_DESC);
+        return result;
+    }
+
+    /**
+     * Дожидается записи очереди и фиксирует изменения хранилища.
+     * Если фоновая запись завершилась ошибкой, выбрасывает ее.
+     */
+    @Override
+    public void flush() {
+        drain();
+        throwLastFailure();
+        delegate.flush();
+    }
+
+    /**
+     * Выбрасывает ошибку фоновой записи, если она была, и сбрасывает ее.
+     */
+    private void throwLastFailure() {
+        lock.lock();
+        try {
+            RuntimeException failure = lastFailure;
+            lastFailure = null;
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Перестает принимать изменения, дожидается записи очереди, останавливает
+     * фоновый поток и закрывает хранилище. Если фоновая запись завершилась
+     * ошибкой, выбрасывает ее после закрытия хранилища.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM уже завершается, shutdown hook дождется записи сам
+        }
+        delegate.close();
+        throwLastFailure();
+    }
+}
@@ -2,76 +2,134 @@ package com.example.cashbacktracker.dao;
 
 import com.example.cashbacktracker.model.Card;
 import com.example.cashbacktracker.model.CardHistory;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Реализация CardDao для хранения данных в XML формате.
  * Использует Jackson XML для сериализации/десериализации данных.
+ * Файлы читаются потоково через StAX (см. {@link StreamingLoader}),
+ * а история загружается только при первом обращении к ней.
+ * <p>
+ * Экземпляр потокобезопасен: чтения выполняются параллельно под разделяемой
+ * блокировкой, изменения и запись в файлы — под исключающей
+ * (см. {@link ReadWriteGuard}).
  */
 public class XmlCardDao implements CardDao {
     private final File file;
     private final File historyFile;
     private final XmlMapper mapper;
+    private final ObjectWriter writer;
+    private final ObjectReader cardReader;
+    private final ObjectReader historyReader;
+    private final FsyncPolicy fsyncPolicy;
     private final AtomicLong nextId;
-    private List<Card> cards;
-    private List<CardHistory> history;
+    private final ReadWriteGuard guard = new ReadWriteGuard();
+    private CardTable cards;
+    private volatile HistoryTable history;
+    private LoadStats cardsLoadStats = LoadStats.EMPTY;
+    private volatile LoadStats historyLoadStats = LoadStats.EMPTY;
+    private final GroupCommitWriter commitWriter;
+    private volatile boolean cardsDirty;
+    private volatile boolean historyDirty;
     
     /**
-     * Создает новый экземпляр XmlCardDao.
+     * Создает новый экземпляр XmlCardDao, перезаписывающий файлы при каждом изменении.
      *
      * @param filePath путь к файлу для хранения данных карт
      */
     public XmlCardDao(String filePath) {
+        this(filePath, null, 0, FsyncPolicy.FILE, false);
+    }
+    
+    /**
+     * Создает новый экземпляр XmlCardDao с групповой фиксацией изменений:
+     * файлы перезаписываются фоновым потоком не чаще одного раза за интервал
+     * или после накопления заданного количества изменений.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи; null для записи при каждом изменении
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     */
+    public XmlCardDao(String filePath, Duration flushInterval, int flushBatchSize) {
+        this(filePath, flushInterval, flushBatchSize, FsyncPolicy.FILE, false);
+    }
+    
+    /**
+     * Создает новый экземпляр XmlCardDao с групповой фиксацией изменений
+     * и заданной политикой сброса файлов на диск.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи; null для записи при каждом изменении
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     * @param fsyncPolicy политика сброса на диск при перезаписи файлов
+     */
+    public XmlCardDao(String filePath, Duration flushInterval, int flushBatchSize, FsyncPolicy fsyncPolicy) {
+        this(filePath, flushInterval, flushBatchSize, fsyncPolicy, false);
+    }
+    
+    /**
+     * Создает новый экземпляр XmlCardDao с полным набором параметров хранения.
+     * Компактный формат записывает XML без отступов и переводов строк: файлы
+     * меньше и перезаписываются быстрее, а читаются так же, как форматированные.
+     *
+     * @param filePath путь к файлу для хранения данных карт
+     * @param flushInterval максимальная задержка записи; null для записи при каждом изменении
+     * @param flushBatchSize количество изменений, после которого запись выполняется сразу
+     * @param fsyncPolicy политика сброса на диск при перезаписи файлов
+     * @param compact true для записи XML без отступов
+     */
+    public XmlCardDao(String filePath, Duration flushInterval, int flushBatchSize, FsyncPolicy fsyncPolicy,
+                      boolean compact) {
         this.file = new File(filePath);
+        this.fsyncPolicy = fsyncPolicy;
         this.historyFile = new File(file.getParent() + "/card_history.xml");
         this.mapper = new XmlMapper();
         this.mapper.registerModule(new JavaTimeModule());
         this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.writer = compact
+                ? mapper.writer().without(SerializationFeature.INDENT_OUTPUT)
+                : mapper.writer().with(SerializationFeature.INDENT_OUTPUT);
+        this.cardReader = mapper.readerFor(Card.class);
+        this.historyReader = mapper.readerFor(CardHistory.class);
         this.nextId = new AtomicLong(1);
+        this.commitWriter = flushInterval == null ? null
+                : new GroupCommitWriter("xml-group-commit", flushInterval, flushBatchSize, this::writeDirty);
         loadData();
-        loadHistory();
     }
     
     /**
      * Загружает данные карт из XML файла.
      * Если файл не существует или пуст, создает новый файл с пустым списком карт.
+     * Поврежденный файл не перезаписывается: загрузка завершается исключением.
      */
     private void loadData() {
+        cards = new CardTable();
         if (file.exists() && file.length() > 0) {
             try {
-                cards = mapper.readValue(file, mapper.getTypeFactory().constructCollectionType(List.class, Card.class));
-                if (cards == null) {
-                    cards = new ArrayList<>();
-                }
-                long maxId = cards.stream()
-                        .mapToLong(Card::getId)
-                        .max()
-                        .orElse(0);
+                cardsLoadStats = StreamingLoader.readXml(mapper, cardReader, file, cards::put);
+                long maxId = cards.maxId();
                 nextId.set(maxId + 1);
             } catch (IOException e) {
-                cards = new ArrayList<>();
-                try {
-                    mapper.writeValue(file, cards);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Ошибка при создании нового XML файла", ex);
-                }
+                throw new RuntimeException("Ошибка при загрузке данных из XML", e);
             }
         } else {
-            cards = new ArrayList<>();
             try {
-                mapper.writeValue(file, cards);
+                writeFile(file, cards.list());
             } catch (IOException e) {
                 throw new RuntimeException("Ошибка при создании нового XML файла", e);
             }
@@ -79,32 +137,73 @@ public class XmlCardDao implements CardDao {
     }
     
     /**
-     * Загружает историю изменений из XML файла.
+     * Загружает историю изменений из XML файла при первом обращении к ней.
      * Если файл не существует или пуст, создает новый файл с пустым списком истории.
+     * Поврежденный файл не перезаписывается: загрузка завершается исключением.
      */
-    private void loadHistory() {
+    private void ensureHistoryLoaded() {
+        if (history != null) {
+            return;
+        }
+        HistoryTable loaded = new HistoryTable();
         if (historyFile.exists() && historyFile.length() > 0) {
             try {
-                history = mapper.readValue(historyFile, mapper.getTypeFactory().constructCollectionType(List.class, CardHistory.class));
-                if (history == null) {
-                    history = new ArrayList<>();
-                }
+                historyLoadStats = StreamingLoader.readXml(mapper, historyReader, historyFile, loaded::add);
             } catch (IOException e) {
-                history = new ArrayList<>();
-                try {
-                    mapper.writeValue(historyFile, history);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Ошибка при создании нового XML файла истории", ex);
-                }
+                throw new RuntimeException("Ошибка при загрузке истории из XML", e);
             }
         } else {
-            history = new ArrayList<>();
             try {
-                mapper.writeValue(historyFile, history);
+                writeFile(historyFile, loaded.list());
             } catch (IOException e) {
                 throw new RuntimeException("Ошибка при создании нового XML файла истории", e);
             }
         }
+        history = loaded;
+    }
+    
+    /**
+     * Атомарно перезаписывает XML файл (см. {@link AtomicFileWriter}).
+     *
+     * @param target файл
+     * @param value данные для записи
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    private void writeFile(File target, Object value) throws IOException {
+        AtomicFileWriter.write(target.toPath(), fsyncPolicy, out -> writer.writeValue(out, value));
+    }
+    
+    /**
+     * Устанавливает получателя ошибок фоновой групповой фиксации.
+     * Такие ошибки не могут быть выброшены вызывающему коду сразу, поэтому о них сообщается
+     * получателю, а сама ошибка выбрасывается при следующем {@link #flush()} или {@link #close()}.
+     * Получатель вызывается в фоновом потоке. Без групповой фиксации ошибки записи
+     * выбрасываются из изменяющих методов, и получатель не вызывается.
+     *
+     * @param listener получатель ошибок
+     */
+    public void setBackgroundFailureListener(Consumer<RuntimeException> listener) {
+        if (commitWriter != null) {
+            commitWriter.setFailureListener(listener);
+        }
+    }
+    
+    /**
+     * Возвращает статистику загрузки файла карт.
+     *
+     * @return статистика загрузки; пустая, если файл отсутствовал
+     */
+    public LoadStats getCardsLoadStats() {
+        return cardsLoadStats;
+    }
+    
+    /**
+     * Возвращает статистику загрузки файла истории.
+     *
+     * @return статистика загрузки; пустая, если история еще не запрашивалась
+     */
+    public LoadStats getHistoryLoadStats() {
+        return historyLoadStats;
     }
     
     /**
@@ -112,7 +211,7 @@ public class XmlCardDao implements CardDao {
      */
     private void saveData() {
         try {
-            mapper.writeValue(file, cards);
+            writeFile(file, cards.list());
         } catch (IOException e) {
             throw new RuntimeException("Ошибка при сохранении данных в XML", e);
         }
@@ -123,29 +222,144 @@ public class XmlCardDao implements CardDao {
      */
     private void saveHistory() {
         try {
-            mapper.writeValue(historyFile, history);
+            writeFile(historyFile, history.list());
         } catch (IOException e) {
             throw new RuntimeException("Ошибка при сохранении истории в XML", e);
         }
     }
     
     /**
-     * Сохраняет новую карту в хранилище и создает запись в истории.
+     * Фиксирует изменение карт: сразу перезаписывает файл карт
+     * или, при групповой фиксации, помечает его для фоновой записи.
+     */
+    private void cardsChanged() {
+        if (commitWriter == null) {
+            saveData();
+            return;
+        }
+        cardsDirty = true;
+        commitWriter.changed();
+    }
+    
+    /**
+     * Фиксирует изменение истории: сразу перезаписывает файл истории
+     * или, при групповой фиксации, помечает его для фоновой записи.
+     */
+    private void historyChanged() {
+        if (commitWriter == null) {
+            saveHistory();
+            return;
+        }
+        historyDirty = true;
+        commitWriter.changed();
+    }
+    
+    /**
+     * Записывает помеченные файлы. Выполняется под разделяемой блокировкой,
+     * поэтому изменения ждут окончания записи, а чтения — нет.
+     */
+    private void writeDirty() {
+        guard.read(() -> {
+            if (cardsDirty) {
+                saveData();
+                cardsDirty = false;
+            }
+            if (historyDirty) {
+                saveHistory();
+                historyDirty = false;
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Создает запись истории для текущего состояния карты.
      *
-     * @param card карта для сохранения
+     * @param card карта
+     * @return запись истории
      */
-    @Override
-    public void saveCard(Card card) {
-        card.setId(nextId.getAndIncrement());
-        cards.add(card);
-        saveData();
+    private CardHistory createHistoryRecord(Card card) {
         CardHistory historyRecord = new CardHistory();
         historyRecord.setCardId(card.getId());
         historyRecord.setCategory(card.getCategory());
         historyRecord.setCashbackPercentage(card.getCashback());
         historyRecord.setChangeDate(card.getCategoryChangeDate());
         historyRecord.setRecordDate(LocalDateTime.now());
-        saveHistory(historyRecord);
+        return historyRecord;
+    }
+    
+    /**
+     * Выполняет изменение под исключающей блокировкой. Если изменение не удалось
+     * записать, данные в памяти, счетчик и назначенные идентификаторы возвращаются
+     * в состояние до изменения (см. {@link UndoLog}), поэтому пакет можно безопасно
+     * повторить.
+     *
+     * @param change изменяющее действие, включая запись изменения
+     */
+    private void mutate(Consumer<UndoLog> change) {
+        guard.write(() -> {
+            UndoLog undo = new UndoLog();
+            long savedNextId = nextId.get();
+            try {
+                change.accept(undo);
+            } catch (RuntimeException e) {
+                undo.rollback();
+                nextId.set(savedNextId);
+                throw e;
+            }
+        });
+    }
+    
+    /**
+     * Назначает новой карте следующий идентификатор.
+     *
+     * @param card карта
+     * @param undo журнал отмены изменения
+     */
+    private void assignCardId(Card card, UndoLog undo) {
+        Long previousId = card.getId();
+        card.setId(nextId.getAndIncrement());
+        undo.add(() -> card.setId(previousId));
+    }
+    
+    /**
+     * Добавляет карту в таблицу или заменяет карту с тем же идентификатором.
+     *
+     * @param card карта с назначенным идентификатором
+     * @param undo журнал отмены изменения
+     */
+    private void putCard(Card card, UndoLog undo) {
+        Long id = card.getId();
+        Card previous = cards.put(card);
+        undo.add(previous == null ? () -> cards.remove(id) : () -> cards.put(previous));
+    }
+    
+    /**
+     * Добавляет запись в загруженную историю.
+     *
+     * @param historyRecord запись истории
+     * @param undo журнал отмены изменения
+     */
+    private void addHistory(CardHistory historyRecord, UndoLog undo) {
+        ensureHistoryLoaded();
+        history.add(historyRecord);
+        undo.add(() -> history.remove(historyRecord));
+    }
+    
+    /**
+     * Сохраняет новую карту в хранилище и создает запись в истории.
+     *
+     * @param card карта для сохранения
+     */
+    @Override
+    public void saveCard(Card card) {
+        mutate(undo -> {
+            assignCardId(card, undo);
+            putCard(card, undo);
+            addHistory(createHistoryRecord(card), undo);
+            cardsChanged();
+            historyChanged();
+        });
     }
     
     /**
@@ -156,33 +370,90 @@ public class XmlCardDao implements CardDao {
      */
     @Override
     public void updateCard(Card card) {
-        Optional<Card> oldCardOpt = getCardById(card.getId());
-        if (oldCardOpt.isPresent()) {
-            Card old = oldCardOpt.get();
-            if (!old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback()) {
-                CardHistory historyRecord = new CardHistory();
-                historyRecord.setCardId(card.getId());
-                historyRecord.setCategory(card.getCategory());
-                historyRecord.setCashbackPercentage(card.getCashback());
-                historyRecord.setChangeDate(card.getCategoryChangeDate());
-                historyRecord.setRecordDate(LocalDateTime.now());
-                saveHistory(historyRecord);
+        mutate(undo -> {
+            Optional<Card> oldCardOpt = getCardById(card.getId());
+            boolean historyChanged = false;
+            if (oldCardOpt.isPresent()) {
+                Card old = oldCardOpt.get();
+                if (!old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback()) {
+                    addHistory(createHistoryRecord(card), undo);
+                    historyChanged = true;
+                }
             }
-        }
-        cards.removeIf(c -> c.getId().equals(card.getId()));
-        cards.add(card);
-        saveData();
+            putCard(card, undo);
+            cardsChanged();
+            if (historyChanged) {
+                historyChanged();
+            }
+        });
+    }
+    
+    /**
+     * Сохраняет несколько новых карт и создает для них записи в истории.
+     * Файлы карт и истории перезаписываются один раз на весь пакет;
+     * если запись не удалась, ни одна карта пакета не остается сохраненной.
+     *
+     * @param newCards карты для сохранения
+     */
+    @Override
+    public void saveCards(List<Card> newCards) {
+        mutate(undo -> {
+            if (newCards.isEmpty()) {
+                return;
+            }
+            for (Card card : newCards) {
+                assignCardId(card, undo);
+                putCard(card, undo);
+                addHistory(createHistoryRecord(card), undo);
+            }
+            cardsChanged();
+            historyChanged();
+        });
     }
     
     /**
-     * Удаляет карту из хранилища.
+     * Обновляет несколько карт.
+     * Файлы карт и истории перезаписываются один раз на весь пакет;
+     * если запись не удалась, ни одно обновление пакета не остается примененным.
+     *
+     * @param updatedCards карты с обновленными данными
+     */
+    @Override
+    public void updateCards(List<Card> updatedCards) {
+        mutate(undo -> {
+            if (updatedCards.isEmpty()) {
+                return;
+            }
+            boolean historyChanged = false;
+            for (Card card : updatedCards) {
+                Optional<Card> oldCardOpt = getCardById(card.getId());
+                if (oldCardOpt.isPresent()) {
+                    Card old = oldCardOpt.get();
+                    if (!old.getCategory().equals(card.getCategory()) || old.getCashback() != card.getCashback()) {
+                        addHistory(createHistoryRecord(card), undo);
+                        historyChanged = true;
+                    }
+                }
+                putCard(card, undo);
+            }
+            cardsChanged();
+            if (historyChanged) {
+                historyChanged();
+            }
+        });
+    }
+    
+    /**
+     * Удаляет карту из хранилища; если удаление не удалось записать, карта остается на прежнем месте.
      *
      * @param id идентификатор карты для удаления
      */
     @Override
     public void deleteCard(Long id) {
-        cards.removeIf(card -> card.getId().equals(id));
-        saveData();
+        mutate(undo -> {
+            cards.remove(id, undo);
+            cardsChanged();
+        });
     }
     
     /**
@@ -192,20 +463,18 @@ public class XmlCardDao implements CardDao {
      */
     @Override
     public List<Card> getAllCards() {
-        return new ArrayList<>(cards);
+        return guard.read(() -> cards.list());
     }
     
     /**
-     * Находит карту по её идентификатору.
+     * Находит карту по её идентификатору через индекс за O(1).
      *
      * @param id идентификатор карты
      * @return Optional, содержащий карту, если она найдена
      */
     @Override
     public Optional<Card> getCardById(Long id) {
-        return cards.stream()
-                .filter(card -> card.getId().equals(id))
-                .findFirst();
+        return guard.read(() -> cards.get(id));
     }
     
     /**
@@ -216,9 +485,18 @@ public class XmlCardDao implements CardDao {
      */
     @Override
     public List<Card> findByCategory(String category) {
-        return cards.stream()
-                .filter(card -> card.getCategory().equalsIgnoreCase(category))
-                .toList();
+        return guard.read(() -> cards.findByCategory(category));
+    }
+    
+    /**
+     * Находит активную карту с максимальным кэшбэком в категории через индекс категорий.
+     *
+     * @param category категория кэшбэка
+     * @return Optional, содержащий лучшую карту, если она найдена
+     */
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        return guard.read(() -> cards.findBestForCategory(category));
     }
     
     /**
@@ -229,9 +507,34 @@ public class XmlCardDao implements CardDao {
      */
     @Override
     public List<Card> findByExpiringCategory(LocalDate date) {
-        return cards.stream()
-                .filter(card -> card.getCategoryChangeDate().isBefore(date) && card.isActive())
-                .toList();
+        return guard.read(() -> cards.findExpiring(date));
+    }
+    
+    /**
+     * Переводит истекающие карты в статус EXPIRED с одной перезаписью файла карт.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        List<Card> expired = new ArrayList<>();
+        mutate(undo -> {
+            for (Card card : cards.findExpiring(date)) {
+                Card.CardStatus previousStatus = card.getStatus();
+                card.setStatus(Card.CardStatus.EXPIRED);
+                undo.add(() -> {
+                    card.setStatus(previousStatus);
+                    cards.put(card);
+                });
+                cards.put(card);
+                expired.add(card);
+            }
+            if (!expired.isEmpty()) {
+                cardsChanged();
+            }
+        });
+        return expired;
     }
     
     /**
@@ -241,20 +544,63 @@ public class XmlCardDao implements CardDao {
      */
     @Override
     public void saveHistory(CardHistory history) {
-        this.history.add(history);
-        saveHistory();
+        mutate(undo -> {
+            addHistory(history, undo);
+            historyChanged();
+        });
+    }
+    
+    /**
+     * Сохраняет несколько записей истории с одной перезаписью файла истории;
+     * если запись не удалась, ни одна запись пакета не остается сохраненной.
+     *
+     * @param records записи истории для сохранения
+     */
+    @Override
+    public void saveHistoryBatch(List<CardHistory> records) {
+        mutate(undo -> {
+            if (records.isEmpty()) {
+                return;
+            }
+            for (CardHistory record : records) {
+                addHistory(record, undo);
+            }
+            historyChanged();
+        });
     }
     
     /**
-     * Получает историю изменений для конкретной карты.
+     * Получает историю изменений для конкретной карты из индекса по карте,
+     * отсортированную по дате изменения по убыванию.
      *
      * @param cardId идентификатор карты
      * @return список записей истории изменений
      */
     @Override
     public List<CardHistory> findHistoryByCardId(Long cardId) {
-        return history.stream()
-                .filter(h -> h.getCardId().equals(cardId))
-                .toList();
+        if (history == null) {
+            guard.write(this::ensureHistoryLoaded);
+        }
+        return guard.read(() -> history.findByCardId(cardId));
+    }
+    
+    /**
+     * Записывает в файлы изменения, ожидающие групповой фиксации.
+     */
+    @Override
+    public void flush() {
+        if (commitWriter != null) {
+            commitWriter.flush();
+        }
+    }
+    
+    /**
+     * Закрывает хранилище, записывая изменения, ожидающие групповой фиксации.
+     */
+    @Override
+    public void close() {
+        if (commitWriter != null) {
+            commitWriter.close();
+        }
     }
 } 
\ No newline at end of file
@@ -80,4 +80,13 @@ public class Card {
     public void setActive(boolean active) {
         this.status = active ? CardStatus.ACTIVE : CardStatus.EXPIRED;
     }
+
+    /**
+     * Создает независимую копию карты.
+     *
+     * @return копия карты со всеми полями
+     */
+    public Card copy() {
+        return new Card(id, bankName, cardName, category, cashback, categoryChangeDate, status);
+    }
 } 
\ No newline at end of file
@@ -36,4 +36,13 @@ public class CardHistory {
         this.changeDate = changeDate;
         this.recordDate = LocalDateTime.now();
     }
+
+    /**
+     * Создает независимую копию записи истории.
+     *
+     * @return копия записи со всеми полями
+     */
+    public CardHistory copy() {
+        return new CardHistory(id, cardId, category, cashbackPercentage, changeDate, recordDate);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.example.cashbacktracker.service;
+
+import com.example.cashbacktracker.dao.CardDaoFactory.StorageType;
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import javafx.application.Platform;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронный фасад над {@link CardService}.
+ * Операции выполняются в фоновом пуле и возвращают {@link CompletableFuture},
+ * который завершается в потоке обратных вызовов — по умолчанию в потоке JavaFX
+ * через {@link Platform#runLater(Runnable)}. Поэтому обработчики результата могут
+ * сразу обновлять интерфейс, а поток интерфейса не ждет ввода-вывода хранилища.
+ * <p>
+ * На JDK 21 и новее по умолчанию каждая операция выполняется в виртуальном потоке,
+ * на более старых JDK — в ограниченном пуле потоков-демонов.
+ */
+public class AsyncCardService {
+    private static final int MAX_POOL_THREADS = 4;
+    private static volatile ExecutorService defaultExecutor;
+
+    private final CardService cardService;
+    private final Executor executor;
+    private final Executor callbackExecutor;
+
+    /**
+     * Создает фасад с исполнителем по умолчанию и обратными вызовами в потоке JavaFX.
+     *
+     * @param cardService сервис, операции которого выполняются асинхронно
+     */
+    public AsyncCardService(CardService cardService) {
+        this(cardService, defaultExecutor(), Platform::runLater);
+    }
+
+    /**
+     * Создает фасад с заданными исполнителями.
+     *
+     * @param cardService сервис, операции которого выполняются асинхронно
+     * @param executor исполнитель операций сервиса
+     * @param callbackExecutor исполнитель, в котором завершаются возвращаемые CompletableFuture
+     */
+    public AsyncCardService(CardService cardService, Executor executor, Executor callbackExecutor) {
+        this.cardService = cardService;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Возвращает общий исполнитель по умолчанию, создавая его при первом обращении.
+     *
+     * @return исполнитель на виртуальных потоках или ограниченный пул
+     */
+    private static ExecutorService defaultExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (AsyncCardService.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = createDefaultExecutor();
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Создает исполнитель на виртуальных потоках, если JDK их поддерживает,
+     * иначе пул не более чем из {@value #MAX_POOL_THREADS} потоков-демонов.
+     * Виртуальные потоки ищутся через рефлексию, потому что проект собирается для Java 17.
+     *
+     * @return новый исполнитель
+     */
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.min(MAX_POOL_THREADS, Runtime.getRuntime().availableProcessors());
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "card-service-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Выполняет операцию в фоне и завершает результат в потоке обратных вызовов.
+     * Исключение операции передается в результат без обертки {@link CompletionException}.
+     *
+     * @param action операция сервиса
+     * @param <T> тип результата
+     * @return CompletableFuture с результатом операции
+     */
+    private <T> CompletableFuture<T> supply(Supplier<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(action, executor).whenComplete((value, error) ->
+                callbackExecutor.execute(() -> {
+                    if (error == null) {
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(
+                                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    }
+                }));
+        return result;
+    }
+
+    /**
+     * Выполняет операцию без результата в фоне.
+     *
+     * @param action операция сервиса
+     * @return CompletableFuture, завершающийся после операции
+     */
+    private CompletableFuture<Void> run(Runnable action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет задачу (например, {@link javafx.concurrent.Task}) в фоновом исполнителе сервиса.
+     *
+     * @param task задача для выполнения
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Асинхронно получает список всех карт.
+     *
+     * @return CompletableFuture со списком всех карт
+     */
+    public CompletableFuture<List<Card>> getAllCards() {
+        return supply(cardService::getAllCards);
+    }
+
+    /**
+     * Асинхронно добавляет новую карту.
+     *
+     * @param card карта для добавления
+     * @return CompletableFuture, завершающийся после добавления
+     */
+    public CompletableFuture<Void> addCard(Card card) {
+        return run(() -> cardService.addCard(card));
+    }
+
+    /**
+     * Асинхронно обновляет информацию о карте.
+     *
+     * @param card карта с обновленными данными
+     * @return CompletableFuture, завершающийся после обновления
+     */
+    public CompletableFuture<Void> updateCard(Card card) {
+        return run(() -> cardService.updateCard(card));
+    }
+
+    /**
+     * Асинхронно удаляет карту.
+     *
+     * @param id идентификатор карты для удаления
+     * @return CompletableFuture, завершающийся после удаления
+     */
+    public CompletableFuture<Void> deleteCard(Long id) {
+        return run(() -> cardService.deleteCard(id));
+    }
+
+    /**
+     * Асинхронно получает историю изменений карты.
+     *
+     * @param cardId идентификатор карты
+     * @return CompletableFuture со списком записей истории
+     */
+    public CompletableFuture<List<CardHistory>> getCardHistory(Long cardId) {
+        return supply(() -> cardService.getCardHistory(cardId));
+    }
+
+    /**
+     * Асинхронно получает список карт с истекающей категорией кэшбэка.
+     *
+     * @param date дата истечения категории
+     * @return CompletableFuture со списком карт
+     */
+    public CompletableFuture<List<Card>> getExpiringCards(LocalDate date) {
+        return supply(() -> cardService.getExpiringCards(date));
+    }
+
+    /**
+     * Асинхронно переводит карты с истекающей категорией в статус «Истёк».
+     *
+     * @param date дата истечения категории
+     * @return CompletableFuture с картами, статус которых был изменен
+     */
+    public CompletableFuture<List<Card>> expireCards(LocalDate date) {
+        return supply(() -> cardService.expireCards(date));
+    }
+
+    /**
+     * Асинхронно находит лучшую карту для категории кэшбэка.
+     *
+     * @param category категория кэшбэка
+     * @return CompletableFuture с Optional, содержащим лучшую карту
+     */
+    public CompletableFuture<Optional<Card>> findBestCardForCategory(String category) {
+        return supply(() -> cardService.findBestCardForCategory(category));
+    }
+
+    /**
+     * Асинхронно переключает тип хранилища данных.
+     *
+     * @param type тип хранилища для переключения
+     * @return CompletableFuture, завершающийся после переключения
+     */
+    public CompletableFuture<Void> switchStorage(StorageType type) {
+        return run(() -> cardService.switchStorage(type));
+    }
+}
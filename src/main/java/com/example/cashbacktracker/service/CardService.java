@@ -8,21 +8,32 @@ import com.example.cashbacktracker.model.CardHistory;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Сервисный класс для работы с банковскими картами.
  * Предоставляет бизнес-логику для управления картами и их историей.
+ * <p>
+ * Операции с картами выполняются параллельно под разделяемой блокировкой, а смена
+ * и закрытие хранилища — под исключающей, поэтому операция из любого потока попадает
+ * либо в прежнее хранилище до его сброса, либо в новое после переключения.
  */
 public class CardService {
-    private CardDao cardDao;
+    private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
+    private volatile CardDao cardDao;
     private CardDaoFactory cardDaoFactory;
+    private volatile Consumer<RuntimeException> errorListener;
     
     /**
      * Создает новый экземпляр сервиса с хранилищем SQLite по умолчанию.
+     * Изменения записываются в фоне, а чтения кэшируются ({@link CardDaoFactory#createWriteBehindDao}).
      */
     public CardService() {
         this.cardDaoFactory = new CardDaoFactory();
-        this.cardDao = cardDaoFactory.createDao(StorageType.SQLITE);
+        this.cardDao = cardDaoFactory.createWriteBehindDao(StorageType.SQLITE, this::reportError);
     }
     
     /**
@@ -35,14 +46,101 @@ public class CardService {
         this.cardDao = cardDao;
     }
     
+    /**
+     * Устанавливает получателя ошибок хранилища, которые не могут быть выброшены
+     * вызывающему коду: отброшенных фоновых записей и ошибок закрытия хранилища.
+     * Получатель может вызываться из фоновых потоков.
+     *
+     * @param errorListener получатель ошибок или null
+     */
+    public void setErrorListener(Consumer<RuntimeException> errorListener) {
+        this.errorListener = errorListener;
+    }
+    
+    /**
+     * Передает ошибку хранилища получателю, если он установлен.
+     *
+     * @param error ошибка хранилища
+     */
+    private void reportError(RuntimeException error) {
+        Consumer<RuntimeException> listener = errorListener;
+        if (listener != null) {
+            listener.accept(error);
+        }
+    }
+    
+    /**
+     * Выполняет операцию с текущим хранилищем под разделяемой блокировкой.
+     *
+     * @param operation операция с хранилищем
+     * @param <T> тип результата
+     * @return результат операции
+     */
+    private <T> T query(Function<CardDao, T> operation) {
+        Lock lock = storageLock.readLock();
+        lock.lock();
+        try {
+            return operation.apply(cardDao);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Выполняет изменение в текущем хранилище под разделяемой блокировкой.
+     *
+     * @param operation изменение хранилища
+     */
+    private void update(Consumer<CardDao> operation) {
+        query(dao -> {
+            operation.accept(dao);
+            return null;
+        });
+    }
+    
     /**
      * Переключает тип хранилища данных.
+     * Переключение ждет завершения начатых операций, а новые операции ждут его окончания.
+     * Сначала в текущее хранилище записываются все отложенные изменения; если запись
+     * не удалась, исключение выбрасывается и сервис остается на текущем хранилище.
+     * Затем открывается новое хранилище, и только после этого предыдущее закрывается.
+     * Ошибка закрытия предыдущего хранилища не отменяет переключение и передается
+     * получателю ошибок.
      *
      * @param type тип хранилища для переключения
      */
     public void switchStorage(StorageType type) {
-        if (cardDaoFactory != null) {
-            this.cardDao = cardDaoFactory.createDao(type);
+        if (cardDaoFactory == null) {
+            return;
+        }
+        CardDao previous;
+        Lock lock = storageLock.writeLock();
+        lock.lock();
+        try {
+            previous = this.cardDao;
+            previous.flush();
+            this.cardDao = cardDaoFactory.createWriteBehindDao(type, this::reportError);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            previous.close();
+        } catch (RuntimeException e) {
+            reportError(e);
+        }
+    }
+    
+    /**
+     * Закрывает текущее хранилище данных после завершения начатых операций.
+     * Вызывается при завершении работы приложения.
+     */
+    public void close() {
+        Lock lock = storageLock.writeLock();
+        lock.lock();
+        try {
+            cardDao.close();
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -52,7 +150,16 @@ public class CardService {
      * @param card карта для добавления
      */
     public void addCard(Card card) {
-        cardDao.saveCard(card);
+        update(dao -> dao.saveCard(card));
+    }
+    
+    /**
+     * Добавляет несколько новых карт в хранилище одной операцией записи.
+     *
+     * @param cards карты для добавления
+     */
+    public void addCards(List<Card> cards) {
+        update(dao -> dao.saveCards(cards));
     }
     
     /**
@@ -61,7 +168,7 @@ public class CardService {
      * @return список всех карт
      */
     public List<Card> getAllCards() {
-        return cardDao.getAllCards();
+        return query(CardDao::getAllCards);
     }
     
     /**
@@ -70,7 +177,25 @@ public class CardService {
      * @param card карта с обновленными данными
      */
     public void updateCard(Card card) {
-        cardDao.updateCard(card);
+        update(dao -> dao.updateCard(card));
+    }
+
+    /**
+     * Обновляет несколько существующих карт одной операцией записи.
+     *
+     * @param cards карты с обновленными данными
+     */
+    public void updateCards(List<Card> cards) {
+        update(dao -> dao.updateCards(cards));
+    }
+
+    /**
+     * Импортирует записи истории изменений одной операцией записи.
+     *
+     * @param history записи истории для сохранения
+     */
+    public void importHistory(List<CardHistory> history) {
+        update(dao -> dao.saveHistoryBatch(history));
     }
 
     /**
@@ -79,7 +204,7 @@ public class CardService {
      * @param id идентификатор карты для удаления
      */
     public void deleteCard(Long id) {
-        cardDao.deleteCard(id);
+        update(dao -> dao.deleteCard(id));
     }
 
     /**
@@ -89,7 +214,18 @@ public class CardService {
      * @return список карт с истекающей категорией
      */
     public List<Card> getExpiringCards(LocalDate date) {
-        return cardDao.findByExpiringCategory(date);
+        return query(dao -> dao.findByExpiringCategory(date));
+    }
+    
+    /**
+     * Переводит все карты с истекающей категорией кэшбэка в статус «Истёк»
+     * одной операцией записи.
+     *
+     * @param date дата истечения категории
+     * @return карты, статус которых был изменен
+     */
+    public List<Card> expireCards(LocalDate date) {
+        return query(dao -> dao.expireCards(date));
     }
     
     /**
@@ -99,24 +235,18 @@ public class CardService {
      * @return список записей истории изменений
      */
     public List<CardHistory> getCardHistory(Long cardId) {
-        return cardDao.findHistoryByCardId(cardId);
+        return query(dao -> dao.findHistoryByCardId(cardId));
     }
     
     /**
      * Находит лучшую карту для указанной категории кэшбэка.
-     * Возвращает карту с максимальным процентом кэшбэка среди активных карт.
+     * Возвращает карту с максимальным процентом кэшбэка среди активных карт;
+     * поиск выполняется хранилищем по его индексам.
      *
      * @param category категория кэшбэка
      * @return Optional, содержащий карту с максимальным кэшбэком, если такая найдена
      */
     public Optional<Card> findBestCardForCategory(String category) {
-        List<Card> cards = cardDao.findByCategory(category);
-        if (cards.isEmpty()) {
-            return Optional.empty();
-        }
-        
-        return cards.stream()
-                .filter(Card::isActive)
-                .max((c1, c2) -> Double.compare(c1.getCashback(), c2.getCashback()));
+        return query(dao -> dao.findBestCardForCategory(category));
     }
 } 
\ No newline at end of file
@@ -4,7 +4,7 @@
  * Этот модуль определяет зависимости и экспорты для приложения CashbackTracker.
  * Он включает в себя:
  * - Зависимости от JavaFX для графического интерфейса
- * - Зависимости от Jackson для работы с JSON и XML
+ * - Зависимости от Jackson для работы с JSON, XML и Smile
  * - Зависимости от SQL для работы с базой данных
  * - Зависимость от Lombok для уменьшения шаблонного кода
  * 
@@ -20,12 +20,14 @@ module com.example.cashbacktracker {
     requires java.sql;
     requires com.fasterxml.jackson.databind;
     requires com.fasterxml.jackson.dataformat.xml;
+    requires com.fasterxml.jackson.dataformat.smile;
     requires com.fasterxml.jackson.datatype.jsr310;
     requires static lombok;
     
     opens com.example.cashbacktracker to javafx.fxml;
     opens com.example.cashbacktracker.controller to javafx.fxml;
     opens com.example.cashbacktracker.model to com.fasterxml.jackson.databind;
+    opens com.example.cashbacktracker.dao to com.fasterxml.jackson.databind;
     exports com.example.cashbacktracker;
     exports com.example.cashbacktracker.controller;
     exports com.example.cashbacktracker.model;
@@ -2,6 +2,7 @@ package com.example.cashbacktracker.controller;
 
 import com.example.cashbacktracker.model.Card;
 import com.example.cashbacktracker.model.CardHistory;
+import com.example.cashbacktracker.service.AsyncCardService;
 import com.example.cashbacktracker.service.CardService;
 import javafx.application.Platform;
 import javafx.scene.control.ComboBox;
@@ -19,6 +20,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -94,11 +96,21 @@ class MainControllerTest {
             fail("Failed to set up test: " + e.getMessage());
         }
 
-        controller.setCardService(cardService);
+        controller.setCardService(cardService, new AsyncCardService(cardService, Runnable::run, Runnable::run));
         // Сброс взаимодействий с моками после инициализации
         clearInvocations(cardService);
     }
 
+    /**
+     * Дожидается обработки событий, уже поставленных в очередь потока JavaFX,
+     * в том числе завершения фоновых задач загрузки.
+     */
+    private static void waitForFxEvents() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Platform.runLater(latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
     @Test
     void testAddCard() {
         // Arrange
@@ -126,13 +138,15 @@ class MainControllerTest {
     }
     
     @Test
-    void testApplyFilters() {
+    void testApplyFilters() throws Exception {
         // Arrange
         List<Card> allCards = Arrays.asList(
             new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.now(), true),
             new Card("Bank2", "Card2", "Category2", 10.0, LocalDate.now(), true)
         );
         when(cardService.getAllCards()).thenReturn(allCards);
+        controller.loadCards();
+        waitForFxEvents();
         
         // Act
         List<Card> filteredCards = controller.applyFilters("Bank1", "Category1", Card.CardStatus.ACTIVE);
@@ -142,6 +156,7 @@ class MainControllerTest {
         assertEquals("Bank1", filteredCards.get(0).getBankName());
         assertEquals("Category1", filteredCards.get(0).getCategory());
         assertEquals(Card.CardStatus.ACTIVE, filteredCards.get(0).getStatus());
+        assertEquals(2, controller.getCardList().size());
     }
     
     @Test
@@ -186,7 +201,7 @@ class MainControllerTest {
             new Card("Bank1", "Card1", "Category1", 5.0, today.minusDays(1), true),
             new Card("Bank2", "Card2", "Category2", 10.0, today.minusDays(2), true)
         );
-        when(cardService.getExpiringCards(today)).thenReturn(expiringCards);
+        when(cardService.expireCards(today)).thenReturn(expiringCards);
 
         // Act (на FX Application Thread)
         CountDownLatch latch = new CountDownLatch(1);
@@ -197,13 +212,13 @@ class MainControllerTest {
         latch.await();
 
         // Assert
-        verify(cardService).getExpiringCards(today);
-        verify(cardService, times(2)).updateCard(any());
+        verify(cardService).expireCards(today);
+        verify(cardService, never()).updateCard(any());
         verify(cardService).getAllCards();
     }
     
     @Test
-    void testAddCardScenario() {
+    void testAddCardScenario() throws Exception {
         // Arrange
         Card newCard = new Card("Test Bank", "Test Card", "Test Category", 5.0, LocalDate.now(), true);
         List<Card> expectedCards = Arrays.asList(newCard);
@@ -212,6 +227,8 @@ class MainControllerTest {
         // Act
         controller.addCard(newCard);
         
+        waitForFxEvents();
+
         // Assert
         verify(cardService).addCard(newCard);
         verify(cardService).getAllCards();
@@ -237,7 +254,7 @@ class MainControllerTest {
     }
     
     @Test
-    void testViewCardsScenario() {
+    void testViewCardsScenario() throws Exception {
         // Arrange
         List<Card> expectedCards = Arrays.asList(
             new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.now(), true),
@@ -248,13 +265,15 @@ class MainControllerTest {
         // Act
         controller.loadCards();
         
+        waitForFxEvents();
+
         // Assert
         verify(cardService).getAllCards();
         assertEquals(expectedCards, controller.getCardList());
     }
     
     @Test
-    void testEditCardScenario() {
+    void testEditCardScenario() throws Exception {
         // Arrange
         Card card = new Card("Test Bank", "Test Card", "Test Category", 5.0, LocalDate.now(), true);
         card.setId(1L);
@@ -264,6 +283,8 @@ class MainControllerTest {
         // Act
         controller.updateCard(card);
         
+        waitForFxEvents();
+
         // Assert
         verify(cardService).updateCard(card);
         verify(cardService).getAllCards();
@@ -271,7 +292,7 @@ class MainControllerTest {
     }
     
     @Test
-    void testDeleteCardScenario() {
+    void testDeleteCardScenario() throws Exception {
         // Arrange
         Long cardId = 1L;
         List<Card> expectedCards = Arrays.asList();
@@ -280,6 +301,8 @@ class MainControllerTest {
         // Act
         controller.deleteCard(cardId);
         
+        waitForFxEvents();
+
         // Assert
         verify(cardService).deleteCard(cardId);
         verify(cardService).getAllCards();
@@ -0,0 +1,55 @@
+package com.example.cashbacktracker.dao;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicFileWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    void testReplacesContent(FsyncPolicy policy) throws IOException {
+        // Arrange
+        Path target = tempDir.resolve("cards.json");
+        Files.writeString(target, "old");
+
+        // Act
+        AtomicFileWriter.write(target, policy, out -> out.write("new".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals("new", Files.readString(target));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FsyncPolicy.class)
+    void testFailedWriteKeepsPreviousContent(FsyncPolicy policy) throws IOException {
+        // Arrange
+        Path target = tempDir.resolve("cards.json");
+        Files.writeString(target, "old");
+
+        // Act
+        assertThrows(IOException.class, () -> AtomicFileWriter.write(target, policy, out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("сбой во время записи");
+        }));
+
+        // Assert
+        assertEquals("old", Files.readString(target));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
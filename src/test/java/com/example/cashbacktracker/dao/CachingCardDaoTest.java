@@ -0,0 +1,154 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCardDaoTest {
+    @Mock
+    private CardDao delegate;
+
+    private final AtomicLong clock = new AtomicLong();
+    private CachingCardDao dao;
+
+    @BeforeEach
+    void setUp() {
+        dao = new CachingCardDao(delegate, 3, Duration.ofSeconds(10), clock::get);
+    }
+
+    private Card card(long id, String category) {
+        Card card = new Card("Bank", "Card" + id, category, 5.0, LocalDate.of(2025, 6, 1), true);
+        card.setId(id);
+        return card;
+    }
+
+    @Test
+    void testRepeatedReadsAreServedFromCache() {
+        // Arrange
+        when(delegate.getAllCards()).thenReturn(List.of(card(1, "Category")));
+
+        // Act
+        List<Card> first = dao.getAllCards();
+        first.clear();
+        List<Card> second = dao.getAllCards();
+
+        // Assert
+        assertEquals(1, second.size());
+        verify(delegate, times(1)).getAllCards();
+        CacheStats stats = dao.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void testWritesInvalidateDependentResults() {
+        // Arrange
+        Card card = card(1, "Category");
+        when(delegate.getCardById(1L)).thenReturn(Optional.of(card));
+        when(delegate.findByCategory("Category")).thenReturn(List.of(card));
+        when(delegate.findHistoryByCardId(1L)).thenReturn(List.of());
+        when(delegate.findHistoryByCardId(2L)).thenReturn(List.of());
+        dao.getCardById(1L);
+        dao.findByCategory("Category");
+        dao.findHistoryByCardId(1L);
+        dao.findHistoryByCardId(2L);
+
+        // Act
+        dao.updateCard(card);
+        dao.saveHistory(new CardHistory(2L, "Category", 1.0, LocalDate.of(2025, 6, 1)));
+        dao.getCardById(1L);
+        dao.findByCategory("Category");
+        dao.findHistoryByCardId(1L);
+        dao.findHistoryByCardId(2L);
+
+        // Assert
+        verify(delegate).updateCard(card);
+        verify(delegate, times(2)).getCardById(1L);
+        verify(delegate, times(2)).findByCategory("Category");
+        verify(delegate, times(2)).findHistoryByCardId(1L);
+        verify(delegate, times(2)).findHistoryByCardId(2L);
+        assertEquals(0, dao.getStats().hits());
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        // Arrange
+        when(delegate.findBestCardForCategory("Category")).thenReturn(Optional.of(card(1, "Category")));
+        dao.findBestCardForCategory("Category");
+
+        // Act
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        dao.findBestCardForCategory("Category");
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        dao.findBestCardForCategory("Category");
+
+        // Assert
+        verify(delegate, times(2)).findBestCardForCategory("Category");
+        CacheStats stats = dao.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.evictions());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        // Arrange
+        for (long id = 1; id <= 4; id++) {
+            when(delegate.getCardById(id)).thenReturn(Optional.of(card(id, "Category")));
+        }
+        dao.getCardById(1L);
+        dao.getCardById(2L);
+        dao.getCardById(3L);
+        dao.getCardById(1L);
+
+        // Act
+        dao.getCardById(4L);
+        dao.getCardById(1L);
+        dao.getCardById(2L);
+
+        // Assert
+        verify(delegate, times(1)).getCardById(1L);
+        verify(delegate, times(2)).getCardById(2L);
+        assertEquals(3, dao.getStats().size());
+        assertEquals(2, dao.getStats().evictions());
+    }
+
+    @Test
+    void testReturnedCardsDoNotShareStateWithCache() {
+        // Arrange
+        Card stored = card(1, "Category");
+        when(delegate.getAllCards()).thenReturn(List.of(stored));
+        when(delegate.getCardById(1L)).thenReturn(Optional.of(stored));
+
+        // Act
+        dao.getAllCards().get(0).setCategory("Changed");
+        dao.getCardById(1L).orElseThrow().setCashback(50.0);
+        stored.setCardName("Changed");
+        List<Card> cards = dao.getAllCards();
+        Card byId = dao.getCardById(1L).orElseThrow();
+
+        // Assert
+        assertEquals("Category", cards.get(0).getCategory());
+        assertEquals("Card1", cards.get(0).getCardName());
+        assertNotSame(stored, cards.get(0));
+        assertEquals(5.0, byId.getCashback());
+        assertNotSame(byId, dao.getCardById(1L).orElseThrow());
+        verify(delegate, times(1)).getAllCards();
+        verify(delegate, times(1)).getCardById(1L);
+    }
+}
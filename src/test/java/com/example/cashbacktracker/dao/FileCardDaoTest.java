@@ -0,0 +1,666 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCardDaoTest {
+    @TempDir
+    Path tempDir;
+
+    private CardDao openDao(String format) {
+        return switch (format) {
+            case "json" -> new JsonCardDao(tempDir.resolve("cards.json").toString());
+            case "xml" -> new XmlCardDao(tempDir.resolve("cards.xml").toString());
+            case "smile" -> new SmileCardDao(tempDir.resolve("cards.smile").toString());
+            case "mapped" -> new MappedCardDao(tempDir.resolve("cards.dat").toString(), FsyncPolicy.NONE);
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+
+    private CardDao openGroupCommitDao(String format, Duration interval, int batchSize) {
+        return switch (format) {
+            case "json" -> new JsonCardDao(tempDir.resolve("cards.json").toString(), interval, batchSize);
+            case "xml" -> new XmlCardDao(tempDir.resolve("cards.xml").toString(), interval, batchSize);
+            case "smile" -> new SmileCardDao(tempDir.resolve("cards.smile").toString(), interval, batchSize,
+                    FsyncPolicy.NONE);
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile"})
+    void testGroupCommitDefersWritesUntilFlush(String format) {
+        // Arrange
+        try (CardDao dao = openGroupCommitDao(format, Duration.ofHours(1), 1_000)) {
+
+            // Act
+            for (int i = 0; i < 50; i++) {
+                dao.saveCard(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+            }
+            int visibleBeforeFlush;
+            try (CardDao reader = openDao(format)) {
+                visibleBeforeFlush = reader.getAllCards().size();
+            }
+            dao.flush();
+
+            // Assert
+            assertEquals(0, visibleBeforeFlush);
+            try (CardDao reader = openDao(format)) {
+                assertEquals(50, reader.getAllCards().size());
+                assertEquals(1, reader.findHistoryByCardId(dao.getAllCards().get(49).getId()).size());
+            }
+            dao.deleteCard(dao.getAllCards().get(0).getId());
+        }
+        try (CardDao reader = openDao(format)) {
+            assertEquals(49, reader.getAllCards().size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile"})
+    void testGroupCommitWritesInBackgroundAfterBatchSize(String format) throws Exception {
+        // Arrange
+        try (CardDao dao = openGroupCommitDao(format, Duration.ofHours(1), 10)) {
+
+            // Act
+            for (int i = 0; i < 10; i++) {
+                dao.saveCard(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+            }
+
+            // Assert
+            int visible = 0;
+            for (int attempt = 0; attempt < 100 && visible < 10; attempt++) {
+                Thread.sleep(50);
+                try (CardDao reader = openDao(format)) {
+                    visible = reader.getAllCards().size();
+                }
+            }
+            assertEquals(10, visible);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json:cards.json", "xml:cards.xml", "smile:cards.smile"})
+    void testGroupCommitReportsBackgroundFailure(String formatAndFile) throws Exception {
+        // Arrange
+        String format = formatAndFile.split(":")[0];
+        Path blocker = tempDir.resolve(formatAndFile.split(":")[1]).resolve("blocker");
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        try (CardDao dao = openGroupCommitDao(format, Duration.ofHours(1), 1)) {
+            if (dao instanceof XmlCardDao xml) {
+                xml.setBackgroundFailureListener(failures::add);
+            } else {
+                ((JsonCardDao) dao).setBackgroundFailureListener(failures::add);
+            }
+            Files.deleteIfExists(blocker.getParent());
+            Files.createDirectories(blocker);
+
+            // Act
+            dao.saveCard(new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true));
+
+            // Assert
+            for (int attempt = 0; attempt < 100 && failures.isEmpty(); attempt++) {
+                Thread.sleep(50);
+            }
+            assertFalse(failures.isEmpty());
+            assertThrows(RuntimeException.class, dao::flush);
+            Files.delete(blocker);
+            Files.delete(blocker.getParent());
+            dao.flush();
+        }
+        try (CardDao reader = openDao(format)) {
+            assertEquals(1, reader.getAllCards().size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile"})
+    void testCorruptFileIsNotReplaced(String format) throws Exception {
+        // Arrange
+        Path cardsFile = tempDir.resolve("cards." + format);
+        Files.writeString(cardsFile, format.equals("xml") ? "<ArrayList><item><id>1</id>" : "[{\"id\": 1, \"bankName\"");
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> openDao(format));
+        assertTrue(Files.readString(cardsFile).startsWith(format.equals("xml") ? "<ArrayList>" : "[{"));
+    }
+
+    @Test
+    void testCompactXmlIsSmallerAndReadable() throws Exception {
+        // Arrange
+        Path prettyDir = Files.createDirectory(tempDir.resolve("pretty"));
+        Path compactDir = Files.createDirectory(tempDir.resolve("compact"));
+        List<Card> cards = new ArrayList<>();
+        List<Card> sameCards = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+            sameCards.add(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+        }
+
+        // Act
+        try (XmlCardDao pretty = new XmlCardDao(prettyDir.resolve("cards.xml").toString());
+             XmlCardDao compact = new XmlCardDao(compactDir.resolve("cards.xml").toString(),
+                     null, 0, FsyncPolicy.NONE, true)) {
+            pretty.saveCards(cards);
+            compact.saveCards(sameCards);
+        }
+
+        // Assert
+        String compactXml = Files.readString(compactDir.resolve("cards.xml"));
+        assertFalse(compactXml.contains("\n"));
+        assertTrue(Files.size(compactDir.resolve("cards.xml")) < Files.size(prettyDir.resolve("cards.xml")));
+        try (XmlCardDao reader = new XmlCardDao(compactDir.resolve("cards.xml").toString())) {
+            assertEquals(20, reader.getAllCards().size());
+            assertEquals(1, reader.findHistoryByCardId(sameCards.get(3).getId()).size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testBatchOperationsSurviveReload(String format) {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+        }
+
+        // Act
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(cards);
+            Card update = new Card("Bank0", "Card0", "Category1", 50.0, LocalDate.of(2025, 6, 1), true);
+            update.setId(cards.get(0).getId());
+            dao.updateCards(List.of(update));
+            dao.saveHistoryBatch(List.of(
+                    new CardHistory(cards.get(1).getId(), "Category2", 1.0, LocalDate.of(2025, 5, 1))));
+        }
+
+        // Assert
+        try (CardDao dao = openDao(format)) {
+            assertEquals(20, dao.getAllCards().size());
+            assertEquals(50.0, dao.getCardById(cards.get(0).getId()).orElseThrow().getCashback());
+            assertEquals(2, dao.findHistoryByCardId(cards.get(0).getId()).size());
+            assertEquals(2, dao.findHistoryByCardId(cards.get(1).getId()).size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json:card_history.json", "xml:card_history.xml", "smile:card_history.sml"})
+    void testFailedBatchLeavesNoPartialChanges(String formatAndHistoryFile) throws Exception {
+        // Arrange
+        String format = formatAndHistoryFile.split(":")[0];
+        Path blocker = tempDir.resolve(formatAndHistoryFile.split(":")[1]).resolve("blocker");
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+        }
+        try (CardDao dao = openDao(format)) {
+            dao.saveCard(new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true));
+            Long existingId = dao.getAllCards().get(0).getId();
+            dao.findHistoryByCardId(existingId);
+            Files.delete(blocker.getParent());
+            Files.createDirectories(blocker);
+            Card update = new Card("Bank", "Card", "Category2", 5.0, LocalDate.of(2025, 6, 1), true);
+            update.setId(existingId);
+
+            // Act
+            assertThrows(RuntimeException.class, () -> dao.saveCards(cards));
+            assertThrows(RuntimeException.class, () -> dao.updateCards(List.of(update)));
+
+            // Assert
+            assertEquals(1, dao.getAllCards().size());
+            assertEquals(1.0, dao.getCardById(existingId).orElseThrow().getCashback());
+            assertEquals(1, dao.findHistoryByCardId(existingId).size());
+            assertTrue(cards.stream().allMatch(card -> card.getId() == null));
+
+            Files.delete(blocker);
+            Files.delete(blocker.getParent());
+            dao.saveCards(cards);
+            dao.updateCards(List.of(update));
+            assertEquals(4, dao.getAllCards().size());
+            assertEquals(existingId + 1, cards.get(0).getId());
+            assertEquals(2, dao.findHistoryByCardId(existingId).size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json:cards.json", "xml:cards.xml", "smile:cards.smile"})
+    void testFailedDeleteKeepsCard(String formatAndFile) throws Exception {
+        // Arrange
+        String format = formatAndFile.split(":")[0];
+        Path blocker = tempDir.resolve(formatAndFile.split(":")[1]).resolve("blocker");
+        Card first = new Card("Bank", "Card1", "Category1", 1.0, LocalDate.of(2025, 6, 1), true);
+        Card second = new Card("Bank", "Card2", "Category1", 2.0, LocalDate.of(2025, 6, 1), true);
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(List.of(first, second));
+            Files.delete(blocker.getParent());
+            Files.createDirectories(blocker);
+
+            // Act
+            assertThrows(RuntimeException.class, () -> dao.deleteCard(first.getId()));
+
+            // Assert
+            assertEquals(List.of(first.getId(), second.getId()),
+                    dao.getAllCards().stream().map(Card::getId).toList());
+            assertEquals(2, dao.findByCategory("category1").size());
+            assertTrue(dao.findByExpiringCategory(LocalDate.of(2025, 7, 1)).stream()
+                    .anyMatch(card -> card.getId().equals(first.getId())));
+
+            Files.delete(blocker);
+            Files.delete(blocker.getParent());
+            dao.deleteCard(first.getId());
+        }
+        try (CardDao dao = openDao(format)) {
+            assertEquals(List.of(second.getId()), dao.getAllCards().stream().map(Card::getId).toList());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testUpdateAndDeleteKeepInsertionOrder(String format) {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", 1.0, LocalDate.of(2025, 6, 1), true));
+        }
+
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(cards);
+
+            // Act
+            Card update = new Card("Bank0", "Card0", "Category2", 3.0, LocalDate.of(2025, 6, 1), true);
+            update.setId(cards.get(0).getId());
+            dao.updateCard(update);
+            for (int i = 1; i < 40; i += 2) {
+                dao.deleteCard(cards.get(i).getId());
+            }
+
+            // Assert
+            List<Long> ids = dao.getAllCards().stream().map(Card::getId).toList();
+            assertEquals(30, ids.size());
+            assertEquals(cards.get(0).getId(), ids.get(0));
+            assertEquals(cards.get(2).getId(), ids.get(1));
+            assertEquals(cards.get(49).getId(), ids.get(29));
+            assertEquals("Category2", dao.getCardById(cards.get(0).getId()).orElseThrow().getCategory());
+            assertTrue(dao.getCardById(cards.get(1).getId()).isEmpty());
+            assertTrue(dao.getCardById(null).isEmpty());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testCategoryIndexFollowsMutations(String format) {
+        // Arrange
+        Card low = new Card("Bank1", "Card1", "Продукты", 3.0, LocalDate.of(2025, 6, 1), true);
+        Card high = new Card("Bank2", "Card2", "ПРОДУКТЫ", 7.0, LocalDate.of(2025, 6, 1), true);
+        Card other = new Card("Bank3", "Card3", "Аптеки", 10.0, LocalDate.of(2025, 8, 1), true);
+
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(List.of(low, high, other));
+
+            // Act & Assert
+            assertEquals(2, dao.findByCategory("продукты").size());
+            assertEquals(high.getId(), dao.findBestCardForCategory("Продукты").orElseThrow().getId());
+
+            high.setCategory("Аптеки");
+            dao.updateCard(high);
+            assertEquals(low.getId(), dao.findBestCardForCategory("продукты").orElseThrow().getId());
+            assertEquals(2, dao.findByCategory("аптеки").size());
+
+            low.setCashback(20.0);
+            dao.updateCard(low);
+            assertEquals(20.0, dao.findBestCardForCategory("Продукты").orElseThrow().getCashback());
+
+            dao.expireCards(LocalDate.of(2025, 7, 1));
+            assertTrue(dao.findBestCardForCategory("Продукты").isEmpty());
+            assertEquals(1, dao.findByCategory("Продукты").size());
+            assertEquals(other.getId(), dao.findBestCardForCategory("Аптеки").orElseThrow().getId());
+
+            dao.deleteCard(other.getId());
+            assertTrue(dao.findBestCardForCategory("Аптеки").isEmpty());
+            assertEquals(1, dao.findByCategory("Аптеки").size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testExpiryIndexFollowsMutations(String format) {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", 1.0, LocalDate.of(2025, 6, 1).plusDays(i), true));
+        }
+
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(cards);
+
+            // Act & Assert
+            assertEquals(10, dao.findByExpiringCategory(LocalDate.of(2025, 6, 11)).size());
+            assertEquals(cards.get(0).getId(), dao.findByExpiringCategory(LocalDate.of(2025, 6, 11)).get(0).getId());
+
+            cards.get(0).setCategoryChangeDate(LocalDate.of(2025, 9, 1));
+            dao.updateCard(cards.get(0));
+            dao.deleteCard(cards.get(1).getId());
+            assertEquals(8, dao.findByExpiringCategory(LocalDate.of(2025, 6, 11)).size());
+
+            assertEquals(8, dao.expireCards(LocalDate.of(2025, 6, 11)).size());
+            assertTrue(dao.findByExpiringCategory(LocalDate.of(2025, 6, 11)).isEmpty());
+
+            cards.get(5).setActive(true);
+            dao.updateCard(cards.get(5));
+            assertEquals(List.of(cards.get(5).getId()),
+                    dao.findByExpiringCategory(LocalDate.of(2025, 6, 11)).stream().map(Card::getId).toList());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testHistoryIsGroupedByCardAndSortedByChangeDate(String format) {
+        // Arrange
+        Card card = new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 3, 1), true);
+        Card other = new Card("Bank2", "Card2", "Category1", 1.0, LocalDate.of(2025, 3, 1), true);
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(List.of(card, other));
+            dao.saveHistoryBatch(List.of(
+                    new CardHistory(card.getId(), "Category2", 2.0, LocalDate.of(2025, 1, 1)),
+                    new CardHistory(card.getId(), "Category3", 3.0, LocalDate.of(2025, 5, 1)),
+                    new CardHistory(other.getId(), "Category4", 4.0, LocalDate.of(2025, 4, 1))));
+            dao.saveHistory(new CardHistory(card.getId(), "Category5", 5.0, LocalDate.of(2025, 2, 1)));
+        }
+
+        // Act
+        try (CardDao dao = openDao(format)) {
+            List<LocalDate> dates = dao.findHistoryByCardId(card.getId()).stream()
+                    .map(CardHistory::getChangeDate)
+                    .toList();
+
+            // Assert
+            assertEquals(List.of(LocalDate.of(2025, 5, 1), LocalDate.of(2025, 3, 1),
+                    LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)), dates);
+            assertEquals(2, dao.findHistoryByCardId(other.getId()).size());
+            assertTrue(dao.findHistoryByCardId(-1L).isEmpty());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile", "mapped"})
+    void testConcurrentReadersAndWritersStayConsistent(String format) throws Exception {
+        // Arrange
+        int writers = 4;
+        int cardsPerWriter = 5;
+        int updatesPerCard = 6;
+        List<Card> initial = new ArrayList<>();
+        for (int i = 0; i < writers * cardsPerWriter; i++) {
+            initial.add(new Card("Bank" + i, "Card" + i, "Category1", 1.0, LocalDate.of(2025, 6, 1), true));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(writers * 2);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(initial);
+
+            // Act
+            List<Future<?>> writerFutures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                List<Card> owned = initial.subList(w * cardsPerWriter, (w + 1) * cardsPerWriter);
+                writerFutures.add(executor.submit(() -> {
+                    for (int round = 1; round <= updatesPerCard; round++) {
+                        for (Card card : owned) {
+                            Card update = new Card(card.getBankName(), card.getCardName(), "Category1",
+                                    round + 1.0, card.getCategoryChangeDate(), true);
+                            update.setId(card.getId());
+                            dao.updateCard(update);
+                        }
+                        dao.saveCard(new Card("New", "New", "Category1", 0.5, LocalDate.of(2025, 6, 1), true));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readerFutures = new ArrayList<>();
+            for (int r = 0; r < writers; r++) {
+                readerFutures.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        try {
+                            // карты только добавляются, поэтому каждый следующий запрос видит не меньше карт
+                            List<Card> all = dao.getAllCards();
+                            assertTrue(all.size() >= initial.size());
+                            assertTrue(dao.findByCategory("category1").size() >= all.size());
+                            assertTrue(dao.findBestCardForCategory("Category1").isPresent());
+                            assertTrue(dao.findByExpiringCategory(LocalDate.of(2025, 7, 1)).size() >= all.size());
+                            assertFalse(dao.findHistoryByCardId(initial.get(0).getId()).isEmpty());
+                        } catch (Throwable e) {
+                            errors.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : writerFutures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> future : readerFutures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            // Assert
+            assertTrue(errors.isEmpty(), () -> "Ошибки читателей: " + errors);
+            assertEquals(initial.size() + writers * updatesPerCard, dao.getAllCards().size());
+            for (Card card : initial) {
+                assertEquals(updatesPerCard + 1, dao.findHistoryByCardId(card.getId()).size());
+                assertEquals(updatesPerCard + 1.0, dao.getCardById(card.getId()).orElseThrow().getCashback());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "xml", "smile"})
+    void testStreamingLoadDefersHistory(String format) {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category" + (i % 7), i % 10, LocalDate.of(2025, 6, 1), true));
+        }
+        try (CardDao dao = openDao(format)) {
+            dao.saveCards(cards);
+        }
+
+        // Act
+        try (CardDao dao = openDao(format)) {
+            LoadStats cardsStats = !format.equals("xml")
+                    ? ((JsonCardDao) dao).getCardsLoadStats() : ((XmlCardDao) dao).getCardsLoadStats();
+            LoadStats historyBefore = !format.equals("xml")
+                    ? ((JsonCardDao) dao).getHistoryLoadStats() : ((XmlCardDao) dao).getHistoryLoadStats();
+            List<CardHistory> history = dao.findHistoryByCardId(cards.get(42).getId());
+            LoadStats historyAfter = !format.equals("xml")
+                    ? ((JsonCardDao) dao).getHistoryLoadStats() : ((XmlCardDao) dao).getHistoryLoadStats();
+
+            // Assert
+            assertEquals(500, cardsStats.records());
+            assertTrue(cardsStats.bytes() > 0);
+            assertEquals(500, dao.getAllCards().size());
+            assertEquals("Category0", dao.getCardById(cards.get(42).getId()).orElseThrow().getCategory());
+            assertSame(LoadStats.EMPTY, historyBefore);
+            assertEquals(1, history.size());
+            assertEquals(500, historyAfter.records());
+        }
+    }
+
+    @Test
+    void testJsonJournalReplayAndCompaction() throws Exception {
+        // Arrange
+        Path cardsFile = tempDir.resolve("cards.json");
+        Path journalFile = tempDir.resolve("cards.journal.jsonl");
+        Long firstId;
+
+        // Act
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            Card card = new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true);
+            dao.saveCard(card);
+            firstId = card.getId();
+            for (int i = 0; i < 600; i++) {
+                Card update = new Card("Bank", "Card", "Category" + (i % 3), i, LocalDate.of(2025, 6, 1), true);
+                update.setId(firstId);
+                dao.updateCard(update);
+            }
+            dao.saveCard(new Card("Bank2", "Card2", "Category1", 2.0, LocalDate.of(2025, 6, 1), true));
+            dao.deleteCard(firstId + 1);
+        }
+
+        // Assert
+        assertTrue(Files.exists(cardsFile));
+        assertTrue(Files.size(journalFile) > 0);
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            assertEquals(1, dao.getAllCards().size());
+            assertEquals(599.0, dao.getCardById(firstId).orElseThrow().getCashback());
+            List<CardHistory> history = dao.findHistoryByCardId(firstId);
+            assertEquals(601, history.size());
+            assertEquals(601, history.stream().map(CardHistory::getId).distinct().count());
+            dao.saveCard(new Card("Bank3", "Card3", "Category1", 3.0, LocalDate.of(2025, 6, 1), true));
+            assertEquals(firstId + 2, dao.getAllCards().get(1).getId());
+        }
+    }
+
+    @Test
+    void testJsonJournalKeepsSegmentOfFailedCompaction() throws Exception {
+        // Arrange
+        Path cardsFile = tempDir.resolve("cards.json");
+        Path segmentFile = tempDir.resolve("cards.journal.compacting.jsonl");
+        Long cardId;
+        RuntimeException failure = null;
+
+        // Act
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            Card card = new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true);
+            dao.saveCard(card);
+            cardId = card.getId();
+            Files.createDirectories(cardsFile.resolve("blocker"));
+            for (int i = 0; i < 2_500; i++) {
+                Card update = new Card("Bank", "Card", "Category" + (i % 3), i, LocalDate.of(2025, 6, 1), true);
+                update.setId(cardId);
+                dao.updateCard(update);
+                if (i == 1_000) {
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                    while (failure == null && System.nanoTime() < deadline) {
+                        try {
+                            dao.flush();
+                            Thread.sleep(10);
+                        } catch (RuntimeException e) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+            assertTrue(Files.exists(segmentFile));
+            Files.delete(cardsFile.resolve("blocker"));
+            Files.delete(cardsFile);
+        }
+
+        // Assert
+        assertNotNull(failure);
+        assertFalse(Files.exists(segmentFile));
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            assertEquals(2_499.0, dao.getCardById(cardId).orElseThrow().getCashback());
+            assertEquals(2_501, dao.findHistoryByCardId(cardId).size());
+        }
+    }
+
+    @Test
+    void testJsonJournalAssignsHistoryIdsWithoutLoadingHistory() {
+        // Arrange
+        Path cardsFile = tempDir.resolve("cards.json");
+        Long cardId;
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            Card card = new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true);
+            dao.saveCard(card);
+            cardId = card.getId();
+            for (int i = 0; i < 600; i++) {
+                Card update = new Card("Bank", "Card", "Category1", i + 2.0, LocalDate.of(2025, 6, 1), true);
+                update.setId(cardId);
+                dao.updateCard(update);
+            }
+        }
+
+        // Act
+        Long addedId;
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            Card added = new Card("Bank2", "Card2", "Category1", 2.0, LocalDate.of(2025, 6, 1), true);
+            dao.saveCard(added);
+            addedId = added.getId();
+            Card update = new Card("Bank", "Card", "Category2", 1000.0, LocalDate.of(2025, 6, 1), true);
+            update.setId(cardId);
+            dao.updateCard(update);
+
+            // Assert
+            assertSame(LoadStats.EMPTY, dao.getHistoryLoadStats());
+        }
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            List<CardHistory> history = new ArrayList<>(dao.findHistoryByCardId(cardId));
+            history.addAll(dao.findHistoryByCardId(addedId));
+            assertEquals(603, history.size());
+            assertEquals(603, history.stream().map(CardHistory::getId).distinct().count());
+            assertTrue(history.stream().anyMatch(record -> "Category2".equals(record.getCategory())));
+        }
+    }
+
+    @Test
+    void testJsonJournalRenumbersImportedHistoryWithTakenId() {
+        // Arrange
+        Path cardsFile = tempDir.resolve("cards.json");
+        Long cardId;
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            Card card = new Card("Bank", "Card", "Category1", 1.0, LocalDate.of(2025, 6, 1), true);
+            dao.saveCard(card);
+            cardId = card.getId();
+            for (int i = 0; i < 600; i++) {
+                Card update = new Card("Bank", "Card", "Category1", i + 2.0, LocalDate.of(2025, 6, 1), true);
+                update.setId(cardId);
+                dao.updateCard(update);
+            }
+        }
+        CardHistory imported = new CardHistory();
+        imported.setId(3L);
+        imported.setCardId(cardId);
+        imported.setCategory("Imported");
+        imported.setCashbackPercentage(7.0);
+        imported.setChangeDate(LocalDate.of(2025, 7, 1));
+
+        // Act
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            dao.saveHistoryBatch(List.of(imported));
+
+            // Assert
+            List<CardHistory> history = dao.findHistoryByCardId(cardId);
+            assertEquals(602, history.size());
+            assertEquals(602, history.stream().map(CardHistory::getId).distinct().count());
+            assertEquals(602L, imported.getId());
+        }
+        try (JsonCardDao dao = new JsonCardDao(cardsFile.toString(), true)) {
+            List<CardHistory> history = dao.findHistoryByCardId(cardId);
+            assertEquals(602, history.size());
+            assertTrue(history.stream().anyMatch(record -> "Imported".equals(record.getCategory())));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCardDaoTest {
+    @TempDir
+    Path tempDir;
+
+    private MappedCardDao openDao() {
+        return new MappedCardDao(tempDir.resolve("cards.dat").toString(), FsyncPolicy.NONE);
+    }
+
+    @Test
+    void testRecordsGrowBeyondInitialMappingAndSurviveReload() {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            cards.add(new Card("Bank" + (i % 10), "Card" + i, "Category" + (i % 7), i % 15,
+                    LocalDate.of(2025, 6, 1).plusDays(i % 30), i % 2 == 0));
+        }
+        LocalDateTime recordDate = LocalDateTime.of(2025, 6, 1, 12, 30, 15, 123_456_789);
+
+        // Act
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCards(cards);
+            dao.saveHistory(new CardHistory(7L, cards.get(0).getId(), "Старая категория", null,
+                    LocalDate.of(2025, 7, 1), recordDate));
+        }
+
+        // Assert
+        try (MappedCardDao dao = openDao()) {
+            assertEquals(3_000, dao.getAllCards().size());
+            Card card = dao.getCardById(cards.get(2_999).getId()).orElseThrow();
+            assertEquals(cards.get(2_999), card);
+            List<CardHistory> history = dao.findHistoryByCardId(cards.get(0).getId());
+            assertEquals(2, history.size());
+            assertEquals("Старая категория", history.get(0).getCategory());
+            assertNull(history.get(0).getCashbackPercentage());
+            assertEquals(recordDate, history.get(0).getRecordDate());
+            assertEquals(LocalDate.of(2025, 6, 1), history.get(1).getChangeDate());
+        }
+    }
+
+    @Test
+    void testDeletedCardStaysDeletedAndIdIsNotReused() {
+        // Arrange
+        Card first = new Card("Bank", "Card1", "Category", 5.0, LocalDate.of(2025, 6, 1), true);
+        Card second = new Card("Bank", "Card2", "Category", 3.0, LocalDate.of(2025, 6, 1), true);
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCards(List.of(first, second));
+            dao.deleteCard(second.getId());
+        }
+
+        // Act
+        Card third = new Card("Bank", "Card3", "Category", 1.0, LocalDate.of(2025, 6, 1), true);
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCard(third);
+        }
+
+        // Assert
+        try (MappedCardDao dao = openDao()) {
+            assertEquals(List.of(first.getId(), third.getId()),
+                    dao.getAllCards().stream().map(Card::getId).toList());
+            assertTrue(third.getId() > second.getId());
+        }
+    }
+
+    @Test
+    void testTornDictionaryTailIsDiscarded() throws IOException {
+        // Arrange
+        Card card = new Card("Bank", "Card", "Category", 5.0, LocalDate.of(2025, 6, 1), true);
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCard(card);
+        }
+        Path strings = tempDir.resolve("strings.dat");
+        long size = Files.size(strings);
+        Files.write(strings, new byte[]{0, 0, 0, 42, 'x'}, StandardOpenOption.APPEND);
+
+        // Act
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCard(new Card("Bank", "Card", "Новая категория", 1.0, LocalDate.of(2025, 6, 1), true));
+        }
+
+        // Assert
+        try (MappedCardDao dao = openDao()) {
+            assertEquals(card, dao.getCardById(card.getId()).orElseThrow());
+            assertEquals(1, dao.findByCategory("Новая категория").size());
+        }
+        assertTrue(Files.size(strings) > size);
+    }
+
+    @Test
+    void testTornCardRecordIsDetectedOnOpen() throws IOException {
+        // Arrange
+        Card card = new Card("Bank", "Card", "Category", 5.0, LocalDate.of(2025, 6, 1), true);
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCard(card);
+        }
+        Path cardsFile = tempDir.resolve("cards.dat");
+        byte[] content = Files.readAllBytes(cardsFile);
+        content[16 + 20] ^= 0x7f;
+        Files.write(cardsFile, content);
+
+        // Act
+        RuntimeException error = assertThrows(RuntimeException.class, this::openDao);
+
+        // Assert
+        assertTrue(error.getCause().getMessage().startsWith("Повреждена запись 0"));
+    }
+
+    @Test
+    void testStatusIsStoredByNameAndUnknownNameIsRejected() throws IOException {
+        // Arrange
+        Card card = new Card("Bank", "Card", "Category", 5.0, LocalDate.of(2025, 6, 1), true);
+        card.setStatus(Card.CardStatus.EXPIRED);
+        try (MappedCardDao dao = openDao()) {
+            dao.saveCard(card);
+        }
+        try (MappedCardDao dao = openDao()) {
+            assertEquals(Card.CardStatus.EXPIRED, dao.getCardById(card.getId()).orElseThrow().getStatus());
+        }
+        Path cardsFile = tempDir.resolve("cards.dat");
+        ByteBuffer record = ByteBuffer.wrap(Files.readAllBytes(cardsFile));
+        record.putInt(16 + 36, record.getInt(16 + 16));
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 16, 44);
+        record.putInt(16 + 44, (int) crc.getValue());
+        Files.write(cardsFile, record.array());
+
+        // Act
+        RuntimeException error = assertThrows(RuntimeException.class, this::openDao);
+
+        // Assert
+        assertEquals("Неизвестный статус карты Category в записи 0", error.getMessage());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Сравнение хранилищ JSON и Smile: размер файлов, время записи снимка
+ * и пропускная способность загрузки карт и истории.
+ * <p>
+ * Не запускается вместе с тестами. Запуск после {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.example.cashbacktracker.dao.SmileFormatBenchmark [количество карт]
+ * </pre>
+ */
+public class SmileFormatBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int cardCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        run(cardCount, false);
+        run(cardCount, true);
+        System.out.println();
+        run(cardCount, false);
+        run(cardCount, true);
+    }
+
+    private static void run(int cardCount, boolean smile) throws IOException {
+        Path dir = Files.createTempDirectory("smile-benchmark");
+        try {
+            Path cardsFile = dir.resolve(smile ? "cards.sml" : "cards.json");
+            List<Card> cards = new ArrayList<>(cardCount);
+            for (int i = 0; i < cardCount; i++) {
+                cards.add(new Card("Bank" + i, "Card" + i, "Category" + (i % 20), i % 15,
+                        LocalDate.of(2025, 6, 1).plusDays(i % 60), true));
+            }
+
+            long saveStart = System.nanoTime();
+            try (JsonCardDao dao = open(cardsFile, smile)) {
+                dao.saveCards(cards);
+            }
+            long saveNanos = System.nanoTime() - saveStart;
+
+            try (JsonCardDao dao = open(cardsFile, smile)) {
+                LoadStats cardsStats = dao.getCardsLoadStats();
+                dao.findHistoryByCardId(cards.get(0).getId());
+                LoadStats historyStats = dao.getHistoryLoadStats();
+
+                System.out.printf("%-5s cards=%,d B, history=%,d B, save=%.1f ms, "
+                                + "load cards=%,.0f rec/s (%.1f MB/s), load history=%,.0f rec/s (%.1f MB/s)%n",
+                        smile ? "smile" : "json",
+                        Files.size(cardsFile),
+                        Files.size(dir.resolve(smile ? "card_history.sml" : "card_history.json")),
+                        saveNanos / 1e6,
+                        cardsStats.recordsPerSecond(), cardsStats.megabytesPerSecond(),
+                        historyStats.recordsPerSecond(), historyStats.megabytesPerSecond());
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static JsonCardDao open(Path cardsFile, boolean smile) {
+        return smile
+                ? new SmileCardDao(cardsFile.toString(), null, 0, FsyncPolicy.NONE)
+                : new JsonCardDao(cardsFile.toString(), null, 0, FsyncPolicy.NONE);
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteCardDaoTest {
+    @TempDir
+    Path tempDir;
+
+    private SqliteCardDao dao;
+
+    @BeforeEach
+    void setUp() {
+        dao = new SqliteCardDao(tempDir.resolve("cashback.db").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dao.close();
+    }
+
+    @Test
+    void testSaveCardCreatesHistory() {
+        // Arrange
+        Card card = new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true);
+
+        // Act
+        dao.saveCard(card);
+
+        // Assert
+        assertNotNull(card.getId());
+        Optional<Card> stored = dao.getCardById(card.getId());
+        assertTrue(stored.isPresent());
+        assertEquals("Category1", stored.get().getCategory());
+        assertEquals(1, dao.findHistoryByCardId(card.getId()).size());
+    }
+
+    @Test
+    void testUpdateCardWritesHistoryOnlyOnChange() {
+        // Arrange
+        Card card = new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true);
+        dao.saveCard(card);
+
+        // Act
+        card.setCardName("Renamed");
+        dao.updateCard(card);
+        card.setCashback(7.5);
+        dao.updateCard(card);
+
+        // Assert
+        List<CardHistory> history = dao.findHistoryByCardId(card.getId());
+        assertEquals(2, history.size());
+        assertEquals("Renamed", dao.getCardById(card.getId()).orElseThrow().getCardName());
+    }
+
+    @Test
+    void testManyOperationsOnPooledConnections() {
+        // Arrange
+        Card card = new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true);
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            dao.saveCard(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+        }
+        dao.saveCard(card);
+
+        // Assert
+        assertEquals(51, dao.getAllCards().size());
+        assertEquals(51, dao.findByCategory("Category1").size());
+    }
+
+    @Test
+    void testStatementCacheReusesPreparedStatements() {
+        // Arrange
+        Card card = new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true);
+        dao.saveCard(card);
+        dao.findHistoryByCardId(card.getId());
+        long missesAfterWarmup = dao.getStatementCacheMisses();
+        long hitsAfterWarmup = dao.getStatementCacheHits();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            dao.getCardById(card.getId());
+            dao.findHistoryByCardId(card.getId());
+        }
+
+        // Assert
+        assertEquals(missesAfterWarmup + 1, dao.getStatementCacheMisses());
+        assertTrue(dao.getStatementCacheHits() - hitsAfterWarmup >= 19);
+    }
+
+    @Test
+    void testConcurrentUpdatesKeepHistoryConsistent() throws Exception {
+        // Arrange
+        Card card = new Card("Bank1", "Card1", "Category1", 0.0, LocalDate.of(2025, 6, 1), true);
+        dao.saveCard(card);
+        Long id = card.getId();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            double cashback = i;
+            futures.add(executor.submit(() -> {
+                Card update = new Card("Bank1", "Card1", "Category1", cashback, LocalDate.of(2025, 6, 1), true);
+                update.setId(id);
+                dao.updateCard(update);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(41, dao.findHistoryByCardId(id).size());
+    }
+
+    @Test
+    void testThroughputProfileEnablesWal() throws Exception {
+        // Arrange
+        String dbPath = tempDir.resolve("throughput.db").toString();
+
+        // Act
+        try (SqliteCardDao throughputDao = new SqliteCardDao(dbPath, SqlitePragmaProfile.THROUGHPUT)) {
+            throughputDao.saveCard(new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true));
+
+            // Assert
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                assertTrue(rs.next());
+                assertEquals("wal", rs.getString(1));
+            }
+            assertEquals(1, throughputDao.getAllCards().size());
+        }
+    }
+
+    @Test
+    void testLegacyDatabaseIsMigratedWithoutDataLoss() throws Exception {
+        // Arrange
+        String dbPath = tempDir.resolve("legacy.db").toString();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE cards (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        bank_name TEXT NOT NULL,
+                        card_name TEXT NOT NULL,
+                        category TEXT NOT NULL,
+                        cashback REAL NOT NULL,
+                        category_change_date TEXT NOT NULL,
+                        is_active INTEGER NOT NULL
+                    )
+                    """);
+            stmt.execute("""
+                    CREATE TABLE card_history (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        card_id INTEGER NOT NULL,
+                        category TEXT NOT NULL,
+                        cashback_percentage REAL NOT NULL,
+                        change_date TEXT NOT NULL,
+                        record_date TEXT NOT NULL
+                    )
+                    """);
+            stmt.execute("INSERT INTO cards VALUES (1, 'Bank1', 'Card1', 'Category1', 5.0, '2025-06-01', 1)");
+            stmt.execute("INSERT INTO card_history VALUES (1, 1, 'Category1', 5.0, '2025-06-01', '2025-05-30T10:15:30.123')");
+            stmt.execute("INSERT INTO cards VALUES (2, 'Bank2', 'Card2', 'Category2', 7.0, '2025-07-01', 1)");
+            stmt.execute("DELETE FROM cards WHERE id = 2");
+        }
+
+        // Act
+        try (SqliteCardDao legacyDao = new SqliteCardDao(dbPath)) {
+
+            // Assert
+            Card card = legacyDao.getCardById(1L).orElseThrow();
+            assertEquals("Card1", card.getCardName());
+            assertEquals(LocalDate.of(2025, 6, 1), card.getCategoryChangeDate());
+            List<CardHistory> history = legacyDao.findHistoryByCardId(1L);
+            assertEquals(1, history.size());
+            assertEquals(LocalDateTime.of(2025, 5, 30, 10, 15, 30, 123_000_000), history.get(0).getRecordDate());
+            assertEquals(1, legacyDao.findByExpiringCategory(LocalDate.of(2025, 6, 2)).size());
+            assertEquals(0, legacyDao.findByExpiringCategory(LocalDate.of(2025, 5, 31)).size());
+
+            Card added = new Card("Bank3", "Card3", "Category3", 1.0, LocalDate.of(2025, 8, 1), true);
+            legacyDao.saveCard(added);
+            assertEquals(3L, added.getId());
+        }
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                assertEquals(SqliteSchemaMigrator.LATEST_VERSION, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT count(*) FROM sqlite_master WHERE type = 'index' AND name LIKE 'idx_%'")) {
+                assertEquals(3, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT typeof(category_change_date) FROM cards WHERE id = 1")) {
+                assertEquals("integer", rs.getString(1));
+            }
+        }
+    }
+
+    @Test
+    void testBatchOperations() {
+        // Arrange
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cards.add(new Card("Bank" + i, "Card" + i, "Category1", i, LocalDate.of(2025, 6, 1), true));
+        }
+
+        // Act
+        dao.saveCards(cards);
+        cards.get(0).setCashback(50.0);
+        cards.get(1).setCardName("Renamed");
+        dao.updateCards(cards.subList(0, 2));
+        dao.saveHistoryBatch(List.of(
+                new CardHistory(cards.get(2).getId(), "Category0", 1.0, LocalDate.of(2025, 5, 1)),
+                new CardHistory(cards.get(2).getId(), "Category9", 2.0, LocalDate.of(2025, 4, 1))));
+
+        // Assert
+        assertEquals(100, dao.getAllCards().size());
+        assertTrue(cards.stream().allMatch(card -> card.getId() != null));
+        assertEquals(2, dao.findHistoryByCardId(cards.get(0).getId()).size());
+        assertEquals(1, dao.findHistoryByCardId(cards.get(1).getId()).size());
+        assertEquals("Renamed", dao.getCardById(cards.get(1).getId()).orElseThrow().getCardName());
+        assertEquals(3, dao.findHistoryByCardId(cards.get(2).getId()).size());
+        assertEquals(99.0, dao.findBestCardForCategory("Category1").orElseThrow().getCashback());
+        assertTrue(dao.findBestCardForCategory("Category2").isEmpty());
+    }
+
+    @Test
+    void testExpireCardsUpdatesAllExpiringCardsAtOnce() {
+        // Arrange
+        Card expiring = new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.of(2025, 6, 1), true);
+        Card alsoExpiring = new Card("Bank2", "Card2", "Category2", 3.0, LocalDate.of(2025, 5, 1), true);
+        Card current = new Card("Bank3", "Card3", "Category3", 1.0, LocalDate.of(2025, 8, 1), true);
+        dao.saveCards(List.of(expiring, alsoExpiring, current));
+
+        // Act
+        List<Card> expired = dao.expireCards(LocalDate.of(2025, 7, 1));
+
+        // Assert
+        assertEquals(2, expired.size());
+        assertTrue(expired.stream().noneMatch(Card::isActive));
+        assertFalse(dao.getCardById(expiring.getId()).orElseThrow().isActive());
+        assertTrue(dao.getCardById(current.getId()).orElseThrow().isActive());
+        assertTrue(dao.findByExpiringCategory(LocalDate.of(2025, 7, 1)).isEmpty());
+        assertEquals(1, dao.findHistoryByCardId(expiring.getId()).size());
+    }
+}
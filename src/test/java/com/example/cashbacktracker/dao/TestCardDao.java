@@ -34,6 +34,16 @@ public class TestCardDao implements CardDao {
         cards.add(card);
     }
 
+    @Override
+    public void saveCards(List<Card> cards) {
+        cards.forEach(this::saveCard);
+    }
+
+    @Override
+    public void updateCards(List<Card> cards) {
+        cards.forEach(this::updateCard);
+    }
+
     @Override
     public void deleteCard(Long id) {
         cards.removeIf(card -> card.getId().equals(id));
@@ -56,6 +66,11 @@ public class TestCardDao implements CardDao {
         this.history.add(history);
     }
 
+    @Override
+    public void saveHistoryBatch(List<CardHistory> history) {
+        this.history.addAll(history);
+    }
+
     @Override
     public List<CardHistory> findHistoryByCardId(Long cardId) {
         return history.stream()
@@ -70,6 +85,13 @@ public class TestCardDao implements CardDao {
                 .toList();
     }
 
+    @Override
+    public Optional<Card> findBestCardForCategory(String category) {
+        return findByCategory(category).stream()
+                .filter(Card::isActive)
+                .max((c1, c2) -> Double.compare(c1.getCashback(), c2.getCashback()));
+    }
+
     @Override
     public List<Card> findByExpiringCategory(LocalDate date) {
         return cards.stream()
@@ -77,6 +99,21 @@ public class TestCardDao implements CardDao {
                 .toList();
     }
 
+    @Override
+    public List<Card> expireCards(LocalDate date) {
+        List<Card> expired = findByExpiringCategory(date);
+        expired.forEach(card -> card.setStatus(Card.CardStatus.EXPIRED));
+        return expired;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
     private void saveHistory(Card card) {
         CardHistory historyRecord = new CardHistory();
         historyRecord.setCardId(card.getId());
@@ -0,0 +1,256 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+import com.example.cashbacktracker.model.CardHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindCardDaoTest {
+    @Mock
+    private CardDao delegate;
+
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+    private WriteBehindCardDao dao;
+
+    @AfterEach
+    void tearDown() {
+        releaseWriter.countDown();
+        if (dao != null) {
+            dao.close();
+        }
+    }
+
+    private Card card(Long id, String cardName) {
+        Card card = new Card("Bank", cardName, "Category", 5.0, LocalDate.of(2025, 6, 1), true);
+        card.setId(id);
+        return card;
+    }
+
+    private void blockWriterOnHistory() {
+        doAnswer(invocation -> {
+            writerBlocked.countDown();
+            releaseWriter.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(delegate).saveHistoryBatch(anyList());
+    }
+
+    @Test
+    void testPendingWritesAreVisibleBeforeTheyReachStorage() throws Exception {
+        // Arrange
+        blockWriterOnHistory();
+        Card stored = card(1L, "Stored");
+        Card removed = card(2L, "Removed");
+        when(delegate.getAllCards()).thenReturn(List.of(stored, removed));
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.saveHistory(new CardHistory(1L, "Category", 5.0, LocalDate.of(2025, 6, 1)));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+
+        // Act
+        Card updated = card(1L, "Updated");
+        Card added = card(null, "Added");
+        dao.updateCard(updated);
+        dao.deleteCard(2L);
+        dao.saveCard(added);
+        List<Card> cards = dao.getAllCards();
+        Optional<Card> byId = dao.getCardById(1L);
+
+        // Assert
+        assertEquals(List.of(updated, added), cards);
+        assertSame(updated, byId.orElseThrow());
+        assertTrue(dao.getCardById(2L).isEmpty());
+        assertEquals(4, dao.pendingWrites());
+        verify(delegate, never()).updateCards(anyList());
+    }
+
+    @Test
+    void testQueuedWritesAreAppliedInOrderAsBatches() throws Exception {
+        // Arrange
+        blockWriterOnHistory();
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.saveHistory(new CardHistory(1L, "Category", 5.0, LocalDate.of(2025, 6, 1)));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        Card first = card(null, "First");
+        Card second = card(null, "Second");
+        Card updated = card(1L, "Updated");
+
+        // Act
+        dao.saveCard(first);
+        dao.saveCard(second);
+        dao.updateCard(updated);
+        dao.deleteCard(3L);
+        releaseWriter.countDown();
+        dao.flush();
+
+        // Assert
+        InOrder order = inOrder(delegate);
+        order.verify(delegate).saveCards(List.of(first, second));
+        order.verify(delegate).updateCards(List.of(updated));
+        order.verify(delegate).deleteCard(3L);
+        order.verify(delegate).flush();
+        assertEquals(0, dao.pendingWrites());
+    }
+
+    @Test
+    void testRejectPolicyFailsWhenQueueIsFull() throws Exception {
+        // Arrange
+        blockWriterOnHistory();
+        dao = new WriteBehindCardDao(delegate, 2, 1, WriteBehindCardDao.OverflowPolicy.REJECT);
+        dao.saveHistory(new CardHistory(1L, "Category", 5.0, LocalDate.of(2025, 6, 1)));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        dao.saveCard(card(null, "First"));
+        dao.saveCard(card(null, "Second"));
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> dao.saveCard(card(null, "Third")));
+        assertEquals(3, dao.pendingWrites());
+    }
+
+    @Test
+    void testStorageFailureIsReportedOnFlush() {
+        // Arrange
+        doThrow(new RuntimeException("Ошибка при сохранении")).when(delegate).saveCards(anyList());
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.saveCard(card(null, "Card"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> dao.flush());
+        dao.flush();
+        verify(delegate, times(1)).flush();
+    }
+
+    @Test
+    void testFailedBatchIsRetriedAndStaysVisible() throws Exception {
+        // Arrange
+        CountDownLatch retrying = new CountDownLatch(1);
+        doThrow(new RuntimeException("Ошибка при сохранении"))
+                .doAnswer(invocation -> {
+                    retrying.countDown();
+                    releaseWriter.await(10, TimeUnit.SECONDS);
+                    return null;
+                })
+                .when(delegate).saveCards(anyList());
+        when(delegate.getAllCards()).thenReturn(List.of());
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        Card added = card(null, "Added");
+
+        // Act
+        dao.saveCard(added);
+        assertTrue(retrying.await(10, TimeUnit.SECONDS));
+        List<Card> whileRetrying = dao.getAllCards();
+        releaseWriter.countDown();
+        dao.flush();
+
+        // Assert
+        assertEquals(List.of(added), whileRetrying);
+        verify(delegate, times(2)).saveCards(List.of(added));
+        assertEquals(0, dao.pendingWrites());
+    }
+
+    @Test
+    void testDroppedWritesAreReportedToListeners() {
+        // Arrange
+        RuntimeException error = new RuntimeException("Ошибка при сохранении");
+        doThrow(error).when(delegate).saveCards(anyList());
+        when(delegate.getAllCards()).thenReturn(List.of());
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.addListener(new WriteBehindCardDao.WriteListener() {
+            @Override
+            public void batchWritten() {
+            }
+
+            @Override
+            public void writeFailed(RuntimeException failure) {
+                failures.add(failure);
+            }
+        });
+
+        // Act
+        dao.saveCard(card(null, "Card"));
+
+        // Assert
+        assertSame(error, assertThrows(RuntimeException.class, () -> dao.flush()));
+        assertEquals(List.of(error), List.copyOf(failures));
+        verify(delegate, times(3)).saveCards(anyList());
+        assertTrue(dao.getAllCards().isEmpty());
+    }
+
+    @Test
+    void testWritesToPendingCardUseItsStoredId() throws Exception {
+        // Arrange
+        blockWriterOnHistory();
+        doAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            cards.get(0).setId(10L);
+            return null;
+        }).when(delegate).saveCards(anyList());
+        when(delegate.getAllCards()).thenReturn(List.of());
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.saveHistory(new CardHistory(1L, "Category", 5.0, LocalDate.of(2025, 6, 1)));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        Card added = card(null, "Added");
+        dao.saveCard(added);
+
+        // Act
+        Card edited = card(added.getId(), "Edited");
+        dao.updateCard(edited);
+        List<Card> beforeWrite = dao.getAllCards();
+        Optional<Card> byProvisionalId = dao.getCardById(added.getId());
+        releaseWriter.countDown();
+        dao.flush();
+
+        // Assert
+        assertTrue(added.getId() == 10L);
+        assertEquals(List.of(edited), beforeWrite);
+        assertSame(edited, byProvisionalId.orElseThrow());
+        verify(delegate).updateCards(List.of(edited));
+        assertEquals(10L, edited.getId());
+        assertThrows(IllegalArgumentException.class, () -> dao.deleteCard(null));
+    }
+
+    @Test
+    void testProvisionalIdIsReleasedOnceNoWriteRefersToIt() throws Exception {
+        // Arrange
+        blockWriterOnHistory();
+        doAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            cards.get(0).setId(10L);
+            return null;
+        }).when(delegate).saveCards(anyList());
+        dao = new WriteBehindCardDao(delegate, 100, 10, WriteBehindCardDao.OverflowPolicy.BLOCK);
+        dao.saveHistory(new CardHistory(1L, "Category", 5.0, LocalDate.of(2025, 6, 1)));
+        assertTrue(writerBlocked.await(10, TimeUnit.SECONDS));
+        Card added = card(null, "Added");
+        dao.saveCard(added);
+        Long provisionalId = added.getId();
+        dao.updateCard(card(provisionalId, "Edited"));
+
+        // Act
+        releaseWriter.countDown();
+        dao.flush();
+        dao.getCardById(provisionalId);
+
+        // Assert
+        verify(delegate).getCardById(provisionalId);
+        verify(delegate, never()).getCardById(10L);
+    }
+}
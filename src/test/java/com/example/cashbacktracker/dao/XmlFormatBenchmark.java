@@ -0,0 +1,77 @@
+package com.example.cashbacktracker.dao;
+
+import com.example.cashbacktracker.model.Card;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Сравнение форматированного и компактного XML в XmlCardDao:
+ * размер файлов и задержка перезаписи на одно изменение.
+ * <p>
+ * Не запускается вместе с тестами. Запуск после {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.example.cashbacktracker.dao.XmlFormatBenchmark [количество карт] [количество изменений]
+ * </pre>
+ */
+public class XmlFormatBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int cardCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int mutations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        run(cardCount, mutations, false);
+        run(cardCount, mutations, true);
+        System.out.println();
+        run(cardCount, mutations, false);
+        run(cardCount, mutations, true);
+    }
+
+    private static void run(int cardCount, int mutations, boolean compact) throws IOException {
+        Path dir = Files.createTempDirectory("xml-benchmark");
+        try {
+            Path cardsFile = dir.resolve("cards.xml");
+            try (XmlCardDao dao = new XmlCardDao(cardsFile.toString(), null, 0, FsyncPolicy.NONE, compact)) {
+                List<Card> cards = new ArrayList<>(cardCount);
+                for (int i = 0; i < cardCount; i++) {
+                    cards.add(new Card("Bank" + i, "Card" + i, "Category" + (i % 20), i % 15,
+                            LocalDate.of(2025, 6, 1).plusDays(i % 60), true));
+                }
+                dao.saveCards(cards);
+
+                long[] latencies = new long[mutations];
+                for (int i = 0; i < mutations; i++) {
+                    // копия, а не сохраненный экземпляр: иначе updateCard не увидит изменения и не запишет историю
+                    Card card = cards.get(i % cardCount).copy();
+                    card.setCashback(card.getCashback() + 1);
+                    long start = System.nanoTime();
+                    dao.updateCard(card);
+                    latencies[i] = System.nanoTime() - start;
+                    cards.set(i % cardCount, card);
+                }
+                Arrays.sort(latencies);
+
+                System.out.printf("%-7s cards.xml=%,d B, card_history.xml=%,d B, update p50=%.2f ms, p95=%.2f ms%n",
+                        compact ? "compact" : "pretty",
+                        Files.size(cardsFile),
+                        Files.size(dir.resolve("card_history.xml")),
+                        latencies[mutations / 2] / 1e6,
+                        latencies[mutations * 95 / 100] / 1e6);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
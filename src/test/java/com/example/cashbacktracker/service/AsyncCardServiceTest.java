@@ -0,0 +1,79 @@
+package com.example.cashbacktracker.service;
+
+import com.example.cashbacktracker.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncCardServiceTest {
+    @Mock
+    private CardService cardService;
+
+    private ExecutorService executor;
+    private ExecutorService callbackExecutor;
+    private AsyncCardService asyncCardService;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-io"));
+        callbackExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-ui"));
+        asyncCardService = new AsyncCardService(cardService, executor, callbackExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        callbackExecutor.shutdownNow();
+    }
+
+    @Test
+    void testOperationRunsInBackgroundAndCompletesOnCallbackThread() throws Exception {
+        // Arrange
+        List<Card> cards = List.of(new Card("Bank", "Card", "Category", 5.0, LocalDate.now(), true));
+        String[] serviceThread = new String[1];
+        when(cardService.getAllCards()).thenAnswer(invocation -> {
+            serviceThread[0] = Thread.currentThread().getName();
+            return cards;
+        });
+
+        // Act
+        CompletableFuture<String> callbackThread = asyncCardService.getAllCards()
+                .thenApply(result -> {
+                    assertEquals(cards, result);
+                    return Thread.currentThread().getName();
+                });
+
+        // Assert
+        assertEquals("test-ui", callbackThread.get(5, TimeUnit.SECONDS));
+        assertEquals("test-io", serviceThread[0]);
+    }
+
+    @Test
+    void testFailureIsPassedWithoutWrapping() {
+        // Arrange
+        RuntimeException failure = new RuntimeException("Ошибка при загрузке данных");
+        doThrow(failure).when(cardService).deleteCard(1L);
+
+        // Act
+        CompletableFuture<Void> result = asyncCardService.deleteCard(1L);
+
+        // Assert
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+    }
+}
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +42,21 @@ class CardServiceTest {
         verify(cardDao).saveCard(card);
     }
     
+    @Test
+    void testAddCards() {
+        // Arrange
+        List<Card> cards = Arrays.asList(
+            new Card("Bank1", "Card1", "Category1", 5.0, LocalDate.now(), true),
+            new Card("Bank2", "Card2", "Category2", 10.0, LocalDate.now(), true)
+        );
+        
+        // Act
+        cardService.addCards(cards);
+        
+        // Assert
+        verify(cardDao).saveCards(cards);
+    }
+    
     @Test
     void testGetAllCards() {
         // Arrange
@@ -71,6 +87,32 @@ class CardServiceTest {
         verify(cardDao).updateCard(card);
     }
     
+    @Test
+    void testUpdateCards() {
+        // Arrange
+        Card card = new Card("Test Bank", "Test Card", "Test Category", 5.0, LocalDate.now(), true);
+        card.setId(1L);
+        List<Card> cards = List.of(card);
+        
+        // Act
+        cardService.updateCards(cards);
+        
+        // Assert
+        verify(cardDao).updateCards(cards);
+    }
+    
+    @Test
+    void testImportHistory() {
+        // Arrange
+        List<CardHistory> history = Arrays.asList(new CardHistory(), new CardHistory());
+        
+        // Act
+        cardService.importHistory(history);
+        
+        // Assert
+        verify(cardDao).saveHistoryBatch(history);
+    }
+    
     @Test
     void testDeleteCard() {
         // Arrange
@@ -101,6 +143,24 @@ class CardServiceTest {
         verify(cardDao).findByExpiringCategory(date);
     }
     
+    @Test
+    void testExpireCards() {
+        // Arrange
+        LocalDate date = LocalDate.now();
+        List<Card> expiredCards = List.of(
+            new Card("Bank1", "Card1", "Category1", 5.0, date.minusDays(1), false)
+        );
+        when(cardDao.expireCards(date)).thenReturn(expiredCards);
+        
+        // Act
+        List<Card> actualCards = cardService.expireCards(date);
+        
+        // Assert
+        assertEquals(expiredCards, actualCards);
+        verify(cardDao).expireCards(date);
+        verify(cardDao, never()).updateCard(any());
+    }
+    
     @Test
     void testGetCardHistory() {
         // Arrange
@@ -123,12 +183,8 @@ class CardServiceTest {
     void testFindBestCardForCategory() {
         // Arrange
         String category = "Test Category";
-        List<Card> cards = Arrays.asList(
-            new Card("Bank1", "Card1", category, 5.0, LocalDate.now(), true),
-            new Card("Bank2", "Card2", category, 10.0, LocalDate.now(), true),
-            new Card("Bank3", "Card3", category, 15.0, LocalDate.now(), true)
-        );
-        when(cardDao.findByCategory(category)).thenReturn(cards);
+        Card best = new Card("Bank3", "Card3", category, 15.0, LocalDate.now(), true);
+        when(cardDao.findBestCardForCategory(category)).thenReturn(Optional.of(best));
         
         // Act
         Optional<Card> bestCard = cardService.findBestCardForCategory(category);
@@ -136,20 +192,30 @@ class CardServiceTest {
         // Assert
         assertTrue(bestCard.isPresent());
         assertEquals(15.0, bestCard.get().getCashback());
-        verify(cardDao).findByCategory(category);
+        verify(cardDao).findBestCardForCategory(category);
+        verify(cardDao, never()).findByCategory(any());
     }
     
     @Test
     void testFindBestCardForCategory_NoCards() {
         // Arrange
         String category = "Test Category";
-        when(cardDao.findByCategory(category)).thenReturn(List.of());
+        when(cardDao.findBestCardForCategory(category)).thenReturn(Optional.empty());
         
         // Act
         Optional<Card> bestCard = cardService.findBestCardForCategory(category);
         
         // Assert
         assertTrue(bestCard.isEmpty());
-        verify(cardDao).findByCategory(category);
+        verify(cardDao).findBestCardForCategory(category);
+    }
+    
+    @Test
+    void testClose() {
+        // Act
+        cardService.close();
+        
+        // Assert
+        verify(cardDao).close();
     }
 } 
\ No newline at end of file